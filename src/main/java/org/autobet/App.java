@@ -13,26 +13,42 @@
  */
 package org.autobet;
 
+import com.beust.jcommander.DynamicParameter;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import org.autobet.ai.Player;
 import org.autobet.ai.PlayerEvaluator;
+import org.autobet.ai.PlayerTuner;
 import org.autobet.ai.TeamRater;
 import org.autobet.ai.TeamRaterStatsCollector;
 import org.autobet.ai.TeamRatersStatsApproximation;
+import org.autobet.ioc.AIModule;
 import org.autobet.ioc.DaggerMainComponent;
+import org.autobet.ioc.DataSourceModule;
+import org.autobet.ioc.DatabaseConfig;
 import org.autobet.ioc.DatabaseConnectionModule.DatabaseConnection;
 import org.autobet.ioc.MainComponent;
+import org.autobet.model.TeamGameResult;
+import org.autobet.model.TeamRating;
+import org.autobet.util.GamesSnapshot;
+import org.autobet.util.KeyValueStore;
 import org.javalite.activejdbc.Base;
 import org.javalite.activejdbc.DBException;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
 import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -43,17 +59,31 @@ import static java.lang.System.currentTimeMillis;
 import static java.util.Comparator.naturalOrder;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.joining;
+import static org.autobet.ImmutableCollectors.toImmutableList;
 import static org.autobet.ImmutableCollectors.toImmutableMap;
 
 public final class App
 {
     private final Map<String, Command> commands = Stream.of(
-            new LoadCommand(), new QueryCommand(), new StatsCalculatorCommand(), new PlayerEvaluatorCommand())
+            new LoadCommand(), new QueryCommand(), new StatsCalculatorCommand(), new PlayerEvaluatorCommand(), new CompactCommand(),
+            new TuneCommand(), new BackfillCommand())
             .collect(toImmutableMap(Command::getName));
 
     @Parameter(names = {"--help", "-h"}, help = true)
     private boolean help = false;
 
+    @Parameter(names = {"-c", "--config"}, description = "database configuration properties file")
+    private String configFile = null;
+
+    @DynamicParameter(names = "-D", description = "database configuration property overriding the configuration file and environment")
+    private Map<String, String> configOverrides = new HashMap<>();
+
+    @Parameter(names = {"--pool-size"}, description = "maximum number of database connections, same as -D" + DatabaseConfig.POOL_SIZE)
+    private Integer poolSize = null;
+
+    @Parameter(names = {"--pool-stats"}, description = "print database connection pool statistics when done")
+    private boolean poolStats = false;
+
     public static final void main(String[] args)
     {
         App app = new App();
@@ -74,9 +104,31 @@ public final class App
 
     private void start(JCommander jc)
     {
-        MainComponent mainComponent = DaggerMainComponent.create();
+        if (poolSize != null) {
+            configOverrides.put(DatabaseConfig.POOL_SIZE, String.valueOf(poolSize));
+        }
+        DatabaseConfig config = DatabaseConfig.load(Optional.ofNullable(configFile), System.getenv(), configOverrides);
+        Command command = commands.get(jc.getParsedCommand());
+        boolean cacheRatings = command instanceof GamesProcessingCommand && ((GamesProcessingCommand) command).isCacheRatings();
+        MainComponent mainComponent = DaggerMainComponent.builder()
+                .dataSourceModule(new DataSourceModule(config))
+                .aIModule(new AIModule(cacheRatings))
+                .build();
         try (DatabaseConnection connection = mainComponent.connectToDatabase()) {
-            commands.get(jc.getParsedCommand()).go(mainComponent);
+            command.go(mainComponent);
+        }
+        finally {
+            if (poolStats) {
+                System.out.println(mainComponent.getPoolMetrics());
+            }
+            if (mainComponent.getDataSource() instanceof Closeable) {
+                try {
+                    ((Closeable) mainComponent.getDataSource()).close();
+                }
+                catch (IOException e) {
+                    throw Throwables.propagate(e);
+                }
+            }
         }
     }
 
@@ -87,16 +139,53 @@ public final class App
         @Parameter(description = "CSV files")
         private List<String> csvFiles;
 
+        @Parameter(names = {"-b", "--bulk"}, description = "load whole files with batched set based queries")
+        private boolean bulk;
+
+        @Parameter(names = {"-p", "--parallel"}, description = "load many files concurrently, implies bulk loading")
+        private boolean parallel;
+
+        @Parameter(names = {"--writers"}, description = "number of concurrent database writers in parallel loading")
+        private int writers = 4;
+
+        @Parameter(names = {"-u", "--upsert"}, description = "update stored games with missing values and new odds, implies bulk loading")
+        private boolean upsert;
+
+        @Parameter(names = {"-f", "--force"}, description = "load all rows of all files, including already loaded ones")
+        private boolean force;
+
         @Override
         public void go(MainComponent component)
         {
-            Loader loader = new Loader();
+            ImmutableList.Builder<String> files = ImmutableList.builder();
             for (String csvFile : csvFiles) {
-                load(loader, csvFile);
+                listFiles(csvFile, files);
+            }
+
+            if (parallel) {
+                int poolSize = component.getDatabaseConfig().getPoolSize();
+                checkArgument(
+                        ParallelLoader.getRequiredConnections(writers) <= poolSize,
+                        "%s writers need %s database connections, while the pool size is %s, decrease --writers or increase --pool-size",
+                        writers,
+                        ParallelLoader.getRequiredConnections(writers),
+                        poolSize);
+                long start = currentTimeMillis();
+                int load = new ParallelLoader(component.getDataSource(), Runtime.getRuntime().availableProcessors(), writers, upsert)
+                        .load(files.build(), force ? LoadedFiles.none() : LoadedFiles.read());
+                System.out.println("loaded " + load + " new objects in:" + (currentTimeMillis() - start) + "ms");
+                return;
+            }
+
+            CsvLoader loader = new IncrementalLoader(
+                    bulk || upsert ? new BulkLoader(upsert) : new Loader(),
+                    force ? LoadedFiles.none() : LoadedFiles.read());
+            for (String csvFile : files.build()) {
+                loadSingleFile(loader, csvFile);
             }
         }
 
-        public void load(Loader loader, String fileName)
+        private void listFiles(String fileName, ImmutableList.Builder<String> files)
         {
             File file = new File(fileName);
             checkArgument(file.exists(), "File does not exists: %s", fileName);
@@ -104,15 +193,15 @@ public final class App
                 String[] list = file.list();
                 Arrays.sort(list);
                 for (String child : list) {
-                    load(loader, fileName + "/" + child);
+                    listFiles(fileName + "/" + child, files);
                 }
             }
             else {
-                loadSingleFile(loader, fileName);
+                files.add(fileName);
             }
         }
 
-        private void loadSingleFile(Loader loader, String csvFile)
+        private void loadSingleFile(CsvLoader loader, String csvFile)
         {
             long start = currentTimeMillis();
             System.out.println("loading: " + csvFile);
@@ -160,6 +249,58 @@ public final class App
         }
     }
 
+    @Parameters(commandDescription = "Remove old versions of stored results")
+    public static final class CompactCommand
+            implements Command
+    {
+        @Parameter(names = {"-k", "--keep"}, description = "number of latest versions to keep per each key, games processing " +
+                "results can be rolled back only to kept checkpoints when already processed games get updated")
+        private int keep = 3;
+
+        @Override
+        public void go(MainComponent component)
+        {
+            long start = currentTimeMillis();
+            int removed = KeyValueStore.compact(keep);
+            System.out.println("removed " + removed + " entries in:" + (currentTimeMillis() - start) + "ms");
+        }
+
+        @Override
+        public String getName()
+        {
+            return "compact";
+        }
+    }
+
+    @Parameters(commandDescription = "Rebuild team game results from stored games")
+    public static final class BackfillCommand
+            implements Command
+    {
+        @Override
+        public void go(MainComponent component)
+        {
+            long start = currentTimeMillis();
+            Base.openTransaction();
+            try {
+                int count = TeamGameResult.rebuild();
+                // cached ratings could have been computed from incomplete results
+                TeamRating.deleteAll();
+                Base.commitTransaction();
+                System.out.println("stored " + count + " team game results in:" + (currentTimeMillis() - start) + "ms");
+            }
+            catch (RuntimeException e) {
+                Base.rollbackTransaction();
+                throw e;
+            }
+        }
+
+        @Override
+        public String getName()
+        {
+            return "backfill";
+        }
+    }
+
     @Parameters(commandDescription = "Calculate team rater statistics")
     public static final class StatsCalculatorCommand
             extends GamesProcessingCommand
@@ -184,10 +325,13 @@ public final class App
 
             TeamRaterStatsCollector statsCollector = component.getStatsCollector();
             long start = currentTimeMillis();
-            TeamRaterStatsCollector.TeamRaterStats teamRaterStats = statsCollector.collect(
-                    teamRater,
-                    getGamesLimit(),
-                    getTimeLimit());
+            TeamRaterStatsCollector.TeamRaterStats teamRaterStats;
+            if (isInMemory()) {
+                teamRaterStats = statsCollector.collect(teamRater, loadSnapshot(), getGamesLimit(), getTimeLimit());
+            }
+            else {
+                teamRaterStats = statsCollector.collect(teamRater, getGamesLimit(), getTimeLimit());
+            }
             long end = currentTimeMillis();
             TeamRatersStatsApproximation approximation = new TeamRatersStatsApproximation(teamRaterStats);
             System.out.println("Stats collection took: " + (end - start) + "ms");
@@ -238,8 +382,11 @@ public final class App
     public static final class PlayerEvaluatorCommand
             extends GamesProcessingCommand
     {
-        @Parameter(names = {"-s", "--strategy"}, description = "strategy to test (default: goal_based)")
-        private String strategy = "goal_based";
+        @Parameter(names = {"-s", "--strategy"}, description = "strategies to test, all are evaluated in a single pass (default: goal_based)")
+        private List<String> strategies;
+
+        @Parameter(names = {"-a", "--all"}, description = "evaluate all strategies in a single pass")
+        private boolean all;
 
         @Parameter(names = {"-l", "--list-strategies"}, description = "list available strategies")
         private boolean listStrategies;
@@ -253,11 +400,50 @@ public final class App
                 return;
             }
 
-            checkState(playerMap.containsKey(strategy), "Unknown player strategy: %s", strategy);
-            Player player = playerMap.get(strategy);
-
+            List<String> playerNames;
+            if (all) {
+                playerNames = ImmutableList.copyOf(playerMap.keySet());
+            }
+            else {
+                playerNames = strategies == null ? ImmutableList.of("goal_based") : ImmutableSet.copyOf(strategies).asList();
+            }
+            for (String playerName : playerNames) {
+                checkState(playerMap.containsKey(playerName), "Unknown player strategy: %s", playerName);
+            }
             PlayerEvaluator evaluator = component.getPlayerEvaluator();
-            PlayerEvaluator.Statistics evaluation = evaluator.evaluate(player, getGamesLimit(), getTimeLimit());
+
+            if (playerNames.size() == 1) {
+                Player player = playerMap.get(playerNames.get(0));
+                PlayerEvaluator.Statistics evaluation;
+                if (isInMemory()) {
+                    evaluation = evaluator.evaluate(player, loadSnapshot(), getGamesLimit(), getTimeLimit());
+                }
+                else {
+                    evaluation = evaluator.evaluate(player, getGamesLimit(), getTimeLimit());
+                }
+                print(evaluation);
+                return;
+            }
+
+            List<Player> players = playerNames.stream()
+                    .map(playerMap::get)
+                    .collect(toImmutableList());
+            Map<String, PlayerEvaluator.Statistics> evaluations;
+            if (isInMemory()) {
+                evaluations = evaluator.evaluate(players, loadSnapshot(), getGamesLimit(), getTimeLimit());
+            }
+            else {
+                evaluations = evaluator.evaluate(players, getGamesLimit(), getTimeLimit());
+            }
+            for (PlayerEvaluator.Statistics evaluation : evaluations.values()) {
+                System.out.println(format("Strategy: %s", evaluation.getStorageKey()));
+                print(evaluation);
+                System.out.println();
+            }
+        }
+
+        private static void print(PlayerEvaluator.Statistics evaluation)
+        {
             int betsCount = evaluation.getBetsCount();
             int playedBetsCount = evaluation.getPlayedBetsCount();
             int winningBetsCount = evaluation.getWinningBetsCount();
@@ -278,6 +464,69 @@ public final class App
         }
     }
 
+    @Parameters(commandDescription = "Search for the best parameters of chances based player, all games are loaded into memory")
+    public static final class TuneCommand
+            extends GamesProcessingCommand
+    {
+        @Parameter(names = {"-w", "--windows"}, description = "goal based rater windows to try")
+        private List<Integer> windows = ImmutableList.of(3, 6, 9, 12);
+
+        @Parameter(names = {"-d", "--degrees"}, description = "degrees of chances approximation to try")
+        private List<Integer> degrees = ImmutableList.of(1, 2, 3);
+
+        @Parameter(names = {"-r", "--thresholds"}, description = "playing award thresholds to try")
+        private List<Double> thresholds = ImmutableList.of(0.1, 0.2, 0.3, 0.4, 0.5);
+
+        @Parameter(names = {"-s", "--samples"}, description = "evaluate only given number of random configurations (default: whole grid)")
+        private int samples = -1;
+
+        @Parameter(names = {"--seed"}, description = "seed of the random configurations selection (default: random)")
+        private Long seed = null;
+
+        @Parameter(names = {"--training-games"}, description = "number of first games used to collect rater statistics, configurations are evaluated on the following ones")
+        private int trainingGames = 100;
+
+        @Parameter(names = {"--top"}, description = "number of best configurations to print")
+        private int top = 10;
+
+        @Override
+        public void go(MainComponent component)
+        {
+            List<PlayerTuner.Configuration> configurations = PlayerTuner.grid(windows, degrees, thresholds);
+            if (samples > 0) {
+                long samplesSeed = seed == null ? new Random().nextLong() : seed;
+                System.out.println(format("Sampling configurations with seed: %d", samplesSeed));
+                configurations = PlayerTuner.sample(configurations, samples, new Random(samplesSeed));
+            }
+            GamesSnapshot snapshot = loadSnapshot();
+
+            long start = currentTimeMillis();
+            List<PlayerTuner.Result> results = component.getPlayerTuner().tune(
+                    snapshot,
+                    configurations,
+                    trainingGames,
+                    getGamesLimit(),
+                    getTimeLimit());
+            System.out.println(format("Evaluated %d configurations in: %dms", results.size(), currentTimeMillis() - start));
+
+            for (PlayerTuner.Result result : results.subList(0, Math.min(top, results.size()))) {
+                PlayerEvaluator.Statistics statistics = result.getStatistics();
+                System.out.println(format(
+                        "%s: result: %.2f, played bets: %d, winning bets: %d",
+                        result.getConfiguration(),
+                        statistics.getResult(),
+                        statistics.getPlayedBetsCount(),
+                        statistics.getWinningBetsCount()));
+            }
+        }
+
+        @Override
+        public String getName()
+        {
+            return "tune";
+        }
+    }
+
     private static abstract class GamesProcessingCommand
             implements Command
     {
@@ -291,6 +540,16 @@ public final class App
                 description = "maximum processing duration (default: unlimited)")
         private String timeLimit = null;
 
+        @Parameter(
+                names = {"-m", "--in-memory"},
+                description = "load all games into memory before processing, nothing is cached then")
+        private boolean inMemory;
+
+        @Parameter(
+                names = {"--cache-ratings"},
+                description = "store team ratings in the database, so the following runs reuse them, the first run is slower (not used in memory)")
+        private boolean cacheRatings;
+
         protected Optional<Integer> getGamesLimit()
         {
             if (gamesLimit > 0) {
@@ -303,6 +562,28 @@ public final class App
         {
             return Optional.ofNullable(timeLimit).map(Duration::parse);
         }
+
+        protected boolean isInMemory()
+        {
+            return inMemory;
+        }
+
+        protected boolean isCacheRatings()
+        {
+            return cacheRatings;
+        }
+
+        protected GamesSnapshot loadSnapshot()
+        {
+            long start = currentTimeMillis();
+            GamesSnapshot snapshot = GamesSnapshot.load();
+            System.out.println(format(
+                    "Loaded %d games and %d bets in: %dms",
+                    snapshot.getGamesCount(),
+                    snapshot.getBetsCount(),
+                    currentTimeMillis() - start));
+            return snapshot;
+        }
     }
 
     interface Command
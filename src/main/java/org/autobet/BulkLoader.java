@@ -0,0 +1,485 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import org.autobet.model.Bet;
+import org.autobet.model.BetType;
+import org.autobet.model.BetVendor;
+import org.autobet.model.Division;
+import org.autobet.model.GameChange;
+import org.autobet.model.Team;
+import org.autobet.model.TeamGameResult;
+import org.autobet.model.TeamRating;
+import org.javalite.activejdbc.Base;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+
+import static java.lang.String.join;
+import static java.util.Collections.nCopies;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.joining;
+import static org.autobet.ImmutableCollectors.toImmutableSet;
+
+/**
+ * Loads whole csv file at once. Divisions and teams are resolved with {@link TeamRegistry}, duplicated games
+ * are found with a single query per file and new games and bets are inserted in JDBC batches.
+ * <p>
+ * In upsert mode already stored games are updated with values which were missing or differ, like results of
+ * games which were loaded from fixtures before they were played, and their new or changed odds are stored.
+ * Updated games are recorded in {@link GameChange} feed.
+ */
+class BulkLoader
+        implements CsvLoader
+{
+    private static final int MAX_GAMES_PER_QUERY = 1000;
+    private static final List<String> GAME_INSERT_COLUMNS = ImmutableList.<String>builder()
+            .add("home_team_id", "away_team_id", "played_at")
+            .addAll(Loader.GAME_COLUMNS.keySet())
+            .build();
+
+    private final Map<String, BetColumn> betColumns;
+    private final TeamRegistry teamRegistry;
+    private final boolean upsert;
+
+    BulkLoader()
+    {
+        this(false);
+    }
+
+    BulkLoader(boolean upsert)
+    {
+        this(TeamRegistry.inCurrentConnection(), upsert);
+    }
+
+    BulkLoader(TeamRegistry teamRegistry, boolean upsert)
+    {
+        this.teamRegistry = requireNonNull(teamRegistry, "teamRegistry is null");
+        this.upsert = upsert;
+        betColumns = createBetColumns();
+    }
+
+    private Map<String, BetColumn> createBetColumns()
+    {
+        ImmutableMap.Builder<String, BetColumn> builder = ImmutableMap.builder();
+        List<BetVendor> betVendors = BetVendor.findAll();
+        List<BetType> betTypes = BetType.findAll();
+        for (BetVendor betVendor : betVendors) {
+            for (BetType betType : betTypes) {
+                String key = betVendor.getString("bet_prefix") + betType.getString("bet_suffix");
+                builder.put(key.toLowerCase(), new BetColumn(betVendor.getLong("id"), betType.getLong("id")));
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int load(String csvFile)
+    {
+        return load(read(csvFile));
+    }
+
+    static List<Map<String, String>> read(String csvFile)
+    {
+        try (CsvFileReader csvFileReader = new CsvFileReader(csvFile)) {
+            return ImmutableList.copyOf(csvFileReader.iterator());
+        }
+    }
+
+    /**
+     * Loads lines of a single file within a transaction on the thread bound connection.
+     */
+    @Override
+    public int load(List<Map<String, String>> lines)
+    {
+        Base.openTransaction();
+        try {
+            int count = loadLines(lines);
+            Base.commitTransaction();
+            return count;
+        }
+        catch (RuntimeException e) {
+            Base.rollbackTransaction();
+            teamRegistry.afterRollback();
+            throw e;
+        }
+        finally {
+            Division.purgeCache();
+            Team.purgeCache();
+        }
+    }
+
+    private int loadLines(List<Map<String, String>> lines)
+    {
+        AtomicInteger counter = new AtomicInteger();
+        Map<GameKey, Map<String, String>> games = new LinkedHashMap<>();
+        for (Map<String, String> line : lines) {
+            long divisionId = teamRegistry.getDivisionId(line.get("div"), counter);
+            long homeTeamId = teamRegistry.getTeamId(divisionId, line.get("hometeam"), counter);
+            long awayTeamId = teamRegistry.getTeamId(divisionId, line.get("awayteam"), counter);
+            games.putIfAbsent(new GameKey(homeTeamId, awayTeamId, parseDate(line.get("date"))), line);
+        }
+
+        if (upsert) {
+            upsertGames(games, counter);
+            return counter.get();
+        }
+
+        Map<GameKey, Map<String, String>> newGames = games;
+        newGames.keySet().removeAll(findGames(newGames.keySet()).keySet());
+        if (newGames.isEmpty()) {
+            return counter.get();
+        }
+
+        insertGames(newGames, counter);
+        Map<GameKey, Long> gameIds = findGames(newGames.keySet());
+        TeamGameResult.store(gameIds.values());
+        insertBets(newGames, gameIds, counter);
+        invalidateTeamRatings(newGames.keySet());
+        return counter.get();
+    }
+
+    private void upsertGames(Map<GameKey, Map<String, String>> games, AtomicInteger counter)
+    {
+        Map<GameKey, Map<String, Object>> storedGames = findGames(games.keySet(), GAME_INSERT_COLUMNS);
+        Map<GameKey, Map<String, String>> changedGames = new LinkedHashMap<>();
+        for (Map.Entry<GameKey, Map<String, String>> game : games.entrySet()) {
+            Map<String, Object> storedGame = storedGames.get(game.getKey());
+            if (storedGame == null || isChanged(storedGame, game.getValue())) {
+                changedGames.put(game.getKey(), game.getValue());
+            }
+        }
+        if (!changedGames.isEmpty()) {
+            PreparedStatement preparedStatement = Base.startBatch(
+                    "INSERT INTO games(" + join(", ", GAME_INSERT_COLUMNS) + ") values(" + placeholders(GAME_INSERT_COLUMNS) + ") " +
+                            "ON DUPLICATE KEY UPDATE " + Loader.GAME_COLUMNS.keySet().stream()
+                            // values missing in the csv file do not override stored ones
+                            .map(column -> column + " = COALESCE(VALUES(" + column + "), " + column + ")")
+                            .collect(joining(", ")));
+            addGames(preparedStatement, changedGames, counter);
+            executeBatch(preparedStatement);
+        }
+
+        Map<GameKey, Long> gameIds = findGames(games.keySet());
+        Set<Long> newGameIds = new HashSet<>();
+        Set<Long> updatedGameIds = new HashSet<>();
+        for (GameKey game : changedGames.keySet()) {
+            (storedGames.containsKey(game) ? updatedGameIds : newGameIds).add(gameIds.get(game));
+        }
+        TeamGameResult.store(newGameIds);
+        TeamGameResult.refresh(updatedGameIds);
+        invalidateTeamRatings(changedGames.keySet());
+
+        // new games get ids greater than any processed one, so only the updated games are recorded
+        Set<Long> changedGameIds = new LinkedHashSet<>(updatedGameIds);
+        changedGameIds.addAll(upsertBets(games, gameIds, counter));
+        changedGameIds.removeAll(newGameIds);
+        GameChange.record(changedGameIds);
+    }
+
+    /**
+     * @return whether any of the game values present in the csv line differs from the stored one
+     */
+    private static boolean isChanged(Map<String, Object> storedGame, Map<String, String> line)
+    {
+        for (Map.Entry<String, String> column : Loader.GAME_COLUMNS.entrySet()) {
+            String value = line.get(column.getValue());
+            Object storedValue = storedGame.get(column.getKey());
+            if (value != null && (storedValue == null || !value.equals(storedValue.toString()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stores odds which are missing or differ from the stored ones.
+     *
+     * @return ids of games with new or changed odds
+     */
+    private Set<Long> upsertBets(Map<GameKey, Map<String, String>> games, Map<GameKey, Long> gameIds, AtomicInteger counter)
+    {
+        Map<Long, Map<BetColumn, Long>> storedOdds = new HashMap<>();
+        for (List<Long> ids : Iterables.partition(gameIds.values(), MAX_GAMES_PER_QUERY)) {
+            Base.find("SELECT game_id, bet_vendor_id, bet_type_id, odds FROM bets WHERE game_id IN (" + placeholders(ids) + ")", ids.toArray())
+                    .with(row -> {
+                        BetColumn column = new BetColumn(((Number) row.get("bet_vendor_id")).longValue(), ((Number) row.get("bet_type_id")).longValue());
+                        storedOdds.computeIfAbsent(((Number) row.get("game_id")).longValue(), gameId -> new HashMap<>())
+                                .put(column, ((BigDecimal) row.get("odds")).setScale(Bet.ODDS_SCALE).unscaledValue().longValueExact());
+                        return true;
+                    });
+        }
+
+        Set<Long> changedGameIds = new LinkedHashSet<>();
+        PreparedStatement preparedStatement = Base.startBatch(
+                "INSERT INTO bets(bet_vendor_id, bet_type_id, game_id, odds) values(?, ?, ?, " + Bet.UNSCALED_ODDS_PLACEHOLDER + ") " +
+                        "ON DUPLICATE KEY UPDATE odds = VALUES(odds)");
+        for (Map.Entry<GameKey, Map<String, String>> game : games.entrySet()) {
+            long gameId = gameIds.get(game.getKey());
+            Map<BetColumn, Long> gameOdds = storedOdds.getOrDefault(gameId, ImmutableMap.of());
+            for (Map.Entry<String, BetColumn> betColumn : betColumns.entrySet()) {
+                String value = game.getValue().get(betColumn.getKey());
+                if (value == null) {
+                    continue;
+                }
+                long odds = Loader.parseOdds(value);
+                BetColumn column = betColumn.getValue();
+                Long storedValue = gameOdds.get(column);
+                if (storedValue == null || storedValue != odds) {
+                    Base.addBatch(preparedStatement, column.getBetVendorId(), column.getBetTypeId(), gameId, odds);
+                    changedGameIds.add(gameId);
+                    counter.incrementAndGet();
+                }
+            }
+        }
+        executeBatch(preparedStatement);
+        return changedGameIds;
+    }
+
+    /**
+     * Finds ids of already stored games with a single query, filtering on teams and date range of given games.
+     */
+    private Map<GameKey, Long> findGames(Set<GameKey> games)
+    {
+        Map<GameKey, Long> gameIds = new HashMap<>();
+        findGames(games, ImmutableList.of()).forEach((key, row) -> gameIds.put(key, ((Number) row.get("id")).longValue()));
+        return gameIds;
+    }
+
+    /**
+     * Finds already stored games with a single query, filtering on teams and date range of given games.
+     *
+     * @return rows with game ids and given columns
+     */
+    private Map<GameKey, Map<String, Object>> findGames(Set<GameKey> games, List<String> columns)
+    {
+        if (games.isEmpty()) {
+            return ImmutableMap.of();
+        }
+        Set<Long> homeTeamIds = games.stream().map(GameKey::getHomeTeamId).collect(toImmutableSet());
+        LocalDate from = games.stream().map(GameKey::getPlayedAt).min(naturalOrder()).get();
+        LocalDate to = games.stream().map(GameKey::getPlayedAt).max(naturalOrder()).get();
+
+        List<Object> parameters = new ArrayList<>(homeTeamIds);
+        parameters.add(Date.valueOf(from));
+        parameters.add(Date.valueOf(to));
+
+        Set<String> selectedColumns = new LinkedHashSet<>(ImmutableList.of("id", "home_team_id", "away_team_id", "played_at"));
+        selectedColumns.addAll(columns);
+
+        Map<GameKey, Map<String, Object>> found = new HashMap<>();
+        Base.find(
+                "SELECT " + join(", ", selectedColumns) + " FROM games " +
+                        "WHERE home_team_id IN (" + placeholders(homeTeamIds) + ") AND played_at BETWEEN ? AND ?",
+                parameters.toArray())
+                .with(row -> {
+                    GameKey key = new GameKey(
+                            ((Number) row.get("home_team_id")).longValue(),
+                            ((Number) row.get("away_team_id")).longValue(),
+                            ((Date) row.get("played_at")).toLocalDate());
+                    if (games.contains(key)) {
+                        found.put(key, row);
+                    }
+                    return true;
+                });
+        return found;
+    }
+
+    private void insertGames(Map<GameKey, Map<String, String>> games, AtomicInteger counter)
+    {
+        PreparedStatement preparedStatement = Base.startBatch(
+                "INSERT INTO games(" + join(", ", GAME_INSERT_COLUMNS) + ") values(" + placeholders(GAME_INSERT_COLUMNS) + ")");
+        addGames(preparedStatement, games, counter);
+        executeBatch(preparedStatement);
+    }
+
+    private static void addGames(PreparedStatement preparedStatement, Map<GameKey, Map<String, String>> games, AtomicInteger counter)
+    {
+        for (Map.Entry<GameKey, Map<String, String>> game : games.entrySet()) {
+            GameKey key = game.getKey();
+            List<Object> values = new ArrayList<>(GAME_INSERT_COLUMNS.size());
+            values.add(key.getHomeTeamId());
+            values.add(key.getAwayTeamId());
+            values.add(Date.valueOf(key.getPlayedAt()));
+            for (String csvColumn : Loader.GAME_COLUMNS.values()) {
+                values.add(game.getValue().get(csvColumn));
+            }
+            Base.addBatch(preparedStatement, values.toArray());
+            counter.incrementAndGet();
+        }
+    }
+
+    private void insertBets(Map<GameKey, Map<String, String>> games, Map<GameKey, Long> gameIds, AtomicInteger counter)
+    {
+        PreparedStatement preparedStatement = Base.startBatch(
+                "INSERT INTO bets(bet_vendor_id, bet_type_id, game_id, odds) values(?, ?, ?, " + Bet.UNSCALED_ODDS_PLACEHOLDER + ")");
+        for (Map.Entry<GameKey, Map<String, String>> game : games.entrySet()) {
+            long gameId = gameIds.get(game.getKey());
+            for (Map.Entry<String, BetColumn> betColumn : betColumns.entrySet()) {
+                String odds = game.getValue().get(betColumn.getKey());
+                if (odds != null) {
+                    BetColumn column = betColumn.getValue();
+                    Base.addBatch(preparedStatement, column.getBetVendorId(), column.getBetTypeId(), gameId, Loader.parseOdds(odds));
+                    counter.incrementAndGet();
+                }
+            }
+        }
+        executeBatch(preparedStatement);
+    }
+
+    private static void invalidateTeamRatings(Set<GameKey> games)
+    {
+        Map<Long, LocalDate> firstGames = new HashMap<>();
+        for (GameKey game : games) {
+            firstGames.merge(game.getHomeTeamId(), game.getPlayedAt(), BinaryOperator.minBy(naturalOrder()));
+            firstGames.merge(game.getAwayTeamId(), game.getPlayedAt(), BinaryOperator.minBy(naturalOrder()));
+        }
+        for (Map.Entry<Long, LocalDate> firstGame : firstGames.entrySet()) {
+            TeamRating.invalidate(firstGame.getKey(), Date.valueOf(firstGame.getValue()));
+        }
+    }
+
+    private static void executeBatch(PreparedStatement preparedStatement)
+    {
+        Base.executeBatch(preparedStatement);
+        try {
+            preparedStatement.close();
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String placeholders(Collection<?> values)
+    {
+        return join(", ", nCopies(values.size(), "?"));
+    }
+
+    private static LocalDate parseDate(String date)
+    {
+        return LocalDate.ofEpochDay(CsvValues.parseEpochDay(date));
+    }
+
+    private static final class BetColumn
+    {
+        private final long betVendorId;
+        private final long betTypeId;
+
+        private BetColumn(long betVendorId, long betTypeId)
+        {
+            this.betVendorId = betVendorId;
+            this.betTypeId = betTypeId;
+        }
+
+        public long getBetVendorId()
+        {
+            return betVendorId;
+        }
+
+        public long getBetTypeId()
+        {
+            return betTypeId;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            BetColumn betColumn = (BetColumn) o;
+            return betVendorId == betColumn.betVendorId &&
+                    betTypeId == betColumn.betTypeId;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(betVendorId, betTypeId);
+        }
+    }
+
+    private static final class GameKey
+    {
+        private final long homeTeamId;
+        private final long awayTeamId;
+        private final LocalDate playedAt;
+
+        private GameKey(long homeTeamId, long awayTeamId, LocalDate playedAt)
+        {
+            this.homeTeamId = homeTeamId;
+            this.awayTeamId = awayTeamId;
+            this.playedAt = playedAt;
+        }
+
+        public long getHomeTeamId()
+        {
+            return homeTeamId;
+        }
+
+        public long getAwayTeamId()
+        {
+            return awayTeamId;
+        }
+
+        public LocalDate getPlayedAt()
+        {
+            return playedAt;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            GameKey gameKey = (GameKey) o;
+            return homeTeamId == gameKey.homeTeamId &&
+                    awayTeamId == gameKey.awayTeamId &&
+                    Objects.equals(playedAt, gameKey.playedAt);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(homeTeamId, awayTeamId, playedAt);
+        }
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.jcip.annotations.NotThreadSafe;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads csv file line by line into a reused byte buffer. Cells are only located when line is read,
+ * they are decoded when accessed, so reading a cell as a number or a date does not create any strings.
+ * <p>
+ * Cells of the current line are valid until the next call to {@link #advance()}.
+ */
+@NotThreadSafe
+public class CsvCursor
+        implements Closeable
+{
+    public static final int MISSING_COLUMN = -1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // mantissa and power of ten are exact doubles up to this many digits, so their quotient is correctly rounded
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
+    private final InputStream input;
+    private final List<String> header;
+    private final Map<String, Integer> columns;
+
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPosition;
+    private int bufferLimit;
+    private boolean endOfFile;
+
+    private int cellsCount;
+    private int[] cellStarts = new int[64];
+    private int[] cellEnds = new int[64];
+    private boolean[] cellEscapes = new boolean[64];
+
+    public CsvCursor(String csvFile)
+    {
+        input = openFile(csvFile);
+        ImmutableList.Builder<String> header = ImmutableList.builder();
+        Map<String, Integer> columns = new HashMap<>();
+        if (advance()) {
+            for (int column = 0; column < cellsCount; column++) {
+                String name = getString(column);
+                name = name == null ? "" : name.toLowerCase();
+                header.add(name);
+                if (!name.isEmpty()) {
+                    columns.putIfAbsent(name, column);
+                }
+            }
+        }
+        this.header = header.build();
+        this.columns = ImmutableMap.copyOf(columns);
+    }
+
+    private static InputStream openFile(String file)
+    {
+        try {
+            return new FileInputStream(file);
+        }
+        catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return lower cased column names
+     */
+    public List<String> getHeader()
+    {
+        return header;
+    }
+
+    /**
+     * @param name lower cased column name
+     * @return index of the column or {@link #MISSING_COLUMN}
+     */
+    public int getColumn(String name)
+    {
+        return columns.getOrDefault(name, MISSING_COLUMN);
+    }
+
+    /**
+     * Moves to the next line.
+     *
+     * @return false when there are no more lines
+     */
+    public boolean advance()
+    {
+        int lineEnd = findLineEnd();
+        if (lineEnd < 0) {
+            cellsCount = 0;
+            return false;
+        }
+        int lineStart = bufferPosition;
+        bufferPosition = Math.min(lineEnd + 1, bufferLimit);
+        if (lineEnd > lineStart && buffer[lineEnd - 1] == '\r') {
+            lineEnd--;
+        }
+        splitCells(lineStart, lineEnd);
+        return true;
+    }
+
+    private int findLineEnd()
+    {
+        int position = bufferPosition;
+        while (true) {
+            for (; position < bufferLimit; position++) {
+                if (buffer[position] == '\n') {
+                    return position;
+                }
+            }
+            if (endOfFile) {
+                return bufferPosition < bufferLimit ? bufferLimit : -1;
+            }
+            position -= bufferPosition;
+            fillBuffer();
+        }
+    }
+
+    private void fillBuffer()
+    {
+        int remaining = bufferLimit - bufferPosition;
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        else {
+            System.arraycopy(buffer, bufferPosition, buffer, 0, remaining);
+        }
+        bufferPosition = 0;
+        bufferLimit = remaining;
+        try {
+            int read = input.read(buffer, bufferLimit, buffer.length - bufferLimit);
+            if (read < 0) {
+                endOfFile = true;
+            }
+            else {
+                bufferLimit += read;
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void splitCells(int lineStart, int lineEnd)
+    {
+        cellsCount = 0;
+        int position = lineStart;
+        while (true) {
+            int cellStart = position;
+            int cellEnd;
+            boolean escaped = false;
+            if (position < lineEnd && buffer[position] == '"') {
+                cellStart++;
+                position++;
+                while (position < lineEnd) {
+                    if (buffer[position] == '"') {
+                        if (position + 1 < lineEnd && buffer[position + 1] == '"') {
+                            escaped = true;
+                            position += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    position++;
+                }
+                cellEnd = position;
+                while (position < lineEnd && buffer[position] != ',') {
+                    position++;
+                }
+            }
+            else {
+                while (position < lineEnd && buffer[position] != ',') {
+                    position++;
+                }
+                cellEnd = position;
+            }
+            addCell(cellStart, cellEnd, escaped);
+            if (position >= lineEnd) {
+                return;
+            }
+            // skip the separator
+            position++;
+        }
+    }
+
+    private void addCell(int start, int end, boolean escaped)
+    {
+        if (cellsCount == cellStarts.length) {
+            cellStarts = Arrays.copyOf(cellStarts, cellsCount * 2);
+            cellEnds = Arrays.copyOf(cellEnds, cellsCount * 2);
+            cellEscapes = Arrays.copyOf(cellEscapes, cellsCount * 2);
+        }
+        cellStarts[cellsCount] = start;
+        cellEnds[cellsCount] = end;
+        cellEscapes[cellsCount] = escaped;
+        cellsCount++;
+    }
+
+    /**
+     * @return number of cells in the current line, it may differ from the header size
+     */
+    public int getCellsCount()
+    {
+        return cellsCount;
+    }
+
+    /**
+     * @return true if the cell is empty or the line has no such cell
+     */
+    public boolean isEmpty(int column)
+    {
+        return column < 0 || column >= cellsCount || cellStarts[column] == cellEnds[column];
+    }
+
+    /**
+     * @return decoded cell or null when cell is empty
+     */
+    public String getString(int column)
+    {
+        if (isEmpty(column)) {
+            return null;
+        }
+        String value = new String(buffer, cellStarts[column], cellEnds[column] - cellStarts[column], UTF_8);
+        if (cellEscapes[column]) {
+            return value.replace("\"\"", "\"");
+        }
+        return value;
+    }
+
+    public int getInt(int column)
+    {
+        checkNotEmpty(column);
+        int position = cellStarts[column];
+        int end = cellEnds[column];
+        boolean negative = buffer[position] == '-';
+        if (negative || buffer[position] == '+') {
+            position++;
+        }
+        if (position == end) {
+            throw invalidCell(column, "number");
+        }
+        long value = 0;
+        for (; position < end; position++) {
+            int digit = buffer[position] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalidCell(column, "number");
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw invalidCell(column, "number");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw invalidCell(column, "number");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Decimal numbers with up to 15 significant digits are decoded without creating strings,
+     * the result is the same as from {@link Double#parseDouble(String)}.
+     */
+    public double getDouble(int column)
+    {
+        checkNotEmpty(column);
+        int position = cellStarts[column];
+        int end = cellEnds[column];
+        boolean negative = buffer[position] == '-';
+        if (negative || buffer[position] == '+') {
+            position++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        boolean anyDigit = false;
+        for (; position < end; position++) {
+            byte value = buffer[position];
+            if (value == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int digit = value - '0';
+            if (digit < 0 || digit > 9) {
+                // exponents or special values
+                return parseDouble(column);
+            }
+            anyDigit = true;
+            if (scale >= 0) {
+                scale++;
+            }
+            if (mantissa == 0 && digit == 0) {
+                continue;
+            }
+            if (++digits > MAX_EXACT_DIGITS) {
+                return parseDouble(column);
+            }
+            mantissa = mantissa * 10 + digit;
+        }
+        if (!anyDigit || scale > MAX_EXACT_DIGITS) {
+            return parseDouble(column);
+        }
+        scale = Math.max(scale, 0);
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    private double parseDouble(int column)
+    {
+        try {
+            return Double.parseDouble(getString(column));
+        }
+        catch (NumberFormatException e) {
+            throw invalidCell(column, "number");
+        }
+    }
+
+    /**
+     * Decodes dates in dd/MM/yy or dd/MM/yyyy format, the same as {@link CsvValues#parseEpochDay(CharSequence)}.
+     *
+     * @return number of days since 1970-01-01
+     */
+    public long getEpochDay(int column)
+    {
+        checkNotEmpty(column);
+        int start = cellStarts[column];
+        int length = cellEnds[column] - start;
+        if ((length != 8 && length != 10) || buffer[start + 2] != '/' || buffer[start + 5] != '/') {
+            throw invalidCell(column, "date");
+        }
+        int day = parseDigits(column, start, 2);
+        int month = parseDigits(column, start + 3, 2);
+        int year = parseDigits(column, start + 6, length - 6);
+        if (length == 8) {
+            year = CsvValues.toYear(year);
+        }
+        if (!CsvValues.isValidDate(year, month, day)) {
+            throw invalidCell(column, "date");
+        }
+        return CsvValues.toEpochDay(year, month, day);
+    }
+
+    private int parseDigits(int column, int start, int length)
+    {
+        int value = 0;
+        for (int position = start; position < start + length; position++) {
+            int digit = buffer[position] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalidCell(column, "date");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private void checkNotEmpty(int column)
+    {
+        checkState(!isEmpty(column), "Cell %s is empty", column);
+    }
+
+    private IllegalArgumentException invalidCell(int column, String type)
+    {
+        return new IllegalArgumentException(String.format("Cell %s is not a valid %s: %s", column, type, getString(column)));
+    }
+
+    @Override
+    public void close()
+    {
+        try {
+            input.close();
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -14,96 +14,57 @@
 
 package org.autobet;
 
-import com.google.common.base.Splitter;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-
-import static org.autobet.ImmutableCollectors.toImmutableList;
+import java.util.NoSuchElementException;
 
+/**
+ * {@link Map} view of csv lines, keyed by lower cased header names. Empty cells are skipped.
+ *
+ * @see CsvCursor for reading without creating objects per cell
+ */
 public class CsvFileReader
         implements CloseableIterator<Map<String, String>>
 {
-    private final BufferedReader fileReader;
+    private final CsvCursor cursor;
     private final List<String> header;
+    private boolean hasNext;
 
     public CsvFileReader(String csvFile)
     {
-        fileReader = openFile(csvFile);
-        header = split(nextLine()).stream().map(String::toLowerCase).collect(toImmutableList());
-    }
-
-    private ImmutableList<String> split(Optional<String> headerLine)
-    {
-        if (!headerLine.isPresent()) {
-            return ImmutableList.of();
-        }
-        else {
-            return ImmutableList.copyOf(Splitter.on(",").split(headerLine.get()));
-        }
-    }
-
-    private Optional<String> nextLine()
-    {
-        try {
-            return Optional.ofNullable(fileReader.readLine());
-        }
-        catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    private BufferedReader openFile(String file)
-    {
-        try {
-            return new BufferedReader(new FileReader(file));
-        }
-        catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
-        }
+        cursor = new CsvCursor(csvFile);
+        header = cursor.getHeader();
+        hasNext = cursor.advance();
     }
 
     @Override
     public void close()
     {
-        try {
-            fileReader.close();
-        }
-        catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        cursor.close();
     }
 
     @Override
     public boolean hasNext()
     {
-        try {
-            return fileReader.ready();
-        }
-        catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return hasNext;
     }
 
     @Override
     public Map<String, String> next()
     {
-        List<String> lineValues = split(nextLine());
+        if (!hasNext) {
+            throw new NoSuchElementException();
+        }
         ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
-        for (int i = 0; i < Math.min(header.size(), lineValues.size()); i++) {
-            String value = lineValues.get(i);
+        for (int i = 0; i < Math.min(header.size(), cursor.getCellsCount()); i++) {
             String key = header.get(i);
-            if (key.length() > 0 && value.length() > 0) {
-                builder.put(key, value);
+            if (key.length() > 0 && !cursor.isEmpty(i)) {
+                builder.put(key, cursor.getString(i));
             }
         }
+        hasNext = cursor.advance();
         return builder.build();
     }
 }
@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet;
+
+import java.util.List;
+import java.util.Map;
+
+interface CsvLoader
+{
+    /**
+     * @return number of newly created objects
+     */
+    int load(String csvFile);
+
+    /**
+     * Loads already read lines of a single csv file.
+     *
+     * @return number of newly created objects
+     */
+    int load(List<Map<String, String>> lines);
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.autobet;
+
+import java.time.LocalDate;
+
+import static java.lang.String.format;
+
+/**
+ * Parsers of the values found in csv files, specialized for the formats which are actually used there.
+ * They are stateless, so unlike {@link java.text.SimpleDateFormat} they can be shared by the loading
+ * threads, and they do not allocate any objects.
+ */
+public final class CsvValues
+{
+    // same two digit year window as SimpleDateFormat uses by default
+    private static final int TWO_DIGIT_YEAR_START = LocalDate.now().getYear() - 80;
+    private static final int DAYS_0000_TO_1970 = 719_528;
+
+    private CsvValues() {}
+
+    /**
+     * Parses dates in dd/MM/yy or dd/MM/yyyy format, see {@link #toYear(int)} for two digit years.
+     *
+     * @return number of days since 1970-01-01
+     */
+    public static long parseEpochDay(CharSequence value)
+    {
+        int length = value.length();
+        if ((length != 8 && length != 10) || value.charAt(2) != '/' || value.charAt(5) != '/') {
+            throw invalidValue(value, "date");
+        }
+        int day = parseDigits(value, 0, 2);
+        int month = parseDigits(value, 3, 2);
+        int year = parseDigits(value, 6, length - 6);
+        if (day < 0 || month < 0 || year < 0) {
+            throw invalidValue(value, "date");
+        }
+        if (length == 8) {
+            year = toYear(year);
+        }
+        if (!isValidDate(year, month, day)) {
+            throw invalidValue(value, "date");
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Resolves two digit years the same way as {@link java.text.SimpleDateFormat} does,
+     * within 80 years before and 20 years after now.
+     */
+    static int toYear(int twoDigitYear)
+    {
+        int year = twoDigitYear + TWO_DIGIT_YEAR_START / 100 * 100;
+        if (year < TWO_DIGIT_YEAR_START) {
+            year += 100;
+        }
+        return year;
+    }
+
+    static boolean isValidDate(int year, int month, int day)
+    {
+        return month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month);
+    }
+
+    /**
+     * Same as {@link LocalDate#toEpochDay()} for non negative years, without creating the date.
+     */
+    static long toEpochDay(int year, int month, int day)
+    {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total -= isLeapYear(year) ? 1 : 2;
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static int lengthOfMonth(int year, int month)
+    {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year)
+    {
+        return (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * @return value of the digits or -1 if any of the characters is not a digit
+     */
+    private static int parseDigits(CharSequence value, int start, int length)
+    {
+        int result = 0;
+        for (int position = start; position < start + length; position++) {
+            int digit = value.charAt(position) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    /**
+     * Parses plain decimal numbers, like odds, into unscaled values of the given scale, e.g. 2.25
+     * with scale 4 is 22500. Digits beyond the scale are rounded half away from zero, the same as
+     * MySQL rounds values stored into decimal columns.
+     */
+    public static long parseDecimal(CharSequence value, int scale)
+    {
+        int length = value.length();
+        int position = 0;
+        boolean negative = length > 0 && value.charAt(0) == '-';
+        if (negative || (length > 0 && value.charAt(0) == '+')) {
+            position++;
+        }
+        long unscaled = 0;
+        int fractionDigits = -1;
+        boolean anyDigit = false;
+        boolean roundUp = false;
+        for (; position < length; position++) {
+            char character = value.charAt(position);
+            if (character == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = character - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalidValue(value, "decimal");
+            }
+            anyDigit = true;
+            if (fractionDigits >= 0 && fractionDigits++ >= scale) {
+                // only the first digit beyond the scale decides about rounding
+                roundUp |= fractionDigits == scale + 1 && digit >= 5;
+                continue;
+            }
+            if (unscaled > (Long.MAX_VALUE - digit) / 10) {
+                throw invalidValue(value, "decimal");
+            }
+            unscaled = unscaled * 10 + digit;
+        }
+        if (!anyDigit) {
+            throw invalidValue(value, "decimal");
+        }
+        for (int digits = Math.max(fractionDigits, 0); digits < scale; digits++) {
+            if (unscaled > Long.MAX_VALUE / 10) {
+                throw invalidValue(value, "decimal");
+            }
+            unscaled *= 10;
+        }
+        if (roundUp) {
+            if (unscaled == Long.MAX_VALUE) {
+                throw invalidValue(value, "decimal");
+            }
+            unscaled++;
+        }
+        return negative ? -unscaled : unscaled;
+    }
+
+    private static IllegalArgumentException invalidValue(CharSequence value, String type)
+    {
+        return new IllegalArgumentException(format("Value is not a valid %s: %s", type, value));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet;
+
+import org.autobet.LoadedFiles.FileChange;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Skips csv files which did not change since they were loaded and loads only new rows of files which grew.
+ * Loaded files are recorded once they are successfully loaded by the delegate loader.
+ */
+class IncrementalLoader
+        implements CsvLoader
+{
+    private final CsvLoader delegate;
+    private final LoadedFiles loadedFiles;
+
+    /**
+     * @param loadedFiles files loaded before, read once for all the files to load, {@link LoadedFiles#none()}
+     * loads all rows of all files, which are recorded as loaded anyway
+     */
+    IncrementalLoader(CsvLoader delegate, LoadedFiles loadedFiles)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.loadedFiles = requireNonNull(loadedFiles, "loadedFiles is null");
+    }
+
+    @Override
+    public int load(String csvFile)
+    {
+        FileChange change = loadedFiles.check(csvFile);
+        if (change.getStatus() == FileChange.Status.UNCHANGED) {
+            LoadedFiles.store(change, change.getLoadedRows());
+            return 0;
+        }
+        return load(change, BulkLoader.read(csvFile), delegate);
+    }
+
+    @Override
+    public int load(List<Map<String, String>> lines)
+    {
+        return delegate.load(lines);
+    }
+
+    /**
+     * Loads lines following the already loaded ones and records the file as loaded.
+     */
+    static int load(FileChange change, List<Map<String, String>> lines, CsvLoader loader)
+    {
+        int loadedRows = Math.min(change.getLoadedRows(), lines.size());
+        int count = loader.load(lines.subList(loadedRows, lines.size()));
+        LoadedFiles.store(change, lines.size());
+        return count;
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.BaseEncoding;
+import net.jcip.annotations.ThreadSafe;
+import org.javalite.activejdbc.Base;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Csv files which were already loaded, identified by their absolute paths. A file with the same size and
+ * modification time or the same content is unchanged and can be skipped. A file whose beginning has the content
+ * which was loaded before only grew, so it is enough to load rows which follow already loaded ones.
+ */
+@ThreadSafe
+final class LoadedFiles
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, LoadedFile> loadedFiles;
+
+    private LoadedFiles(Map<String, LoadedFile> loadedFiles)
+    {
+        this.loadedFiles = ImmutableMap.copyOf(requireNonNull(loadedFiles, "loadedFiles is null"));
+    }
+
+    /**
+     * @return instance which considers all files as new
+     */
+    static LoadedFiles none()
+    {
+        return new LoadedFiles(ImmutableMap.of());
+    }
+
+    /**
+     * Reads all loaded files with the thread bound connection.
+     */
+    static LoadedFiles read()
+    {
+        ImmutableMap.Builder<String, LoadedFile> loadedFiles = ImmutableMap.builder();
+        List<Map> rows = Base.findAll("SELECT path, size, last_modified, content_hash, rows_count FROM loaded_files");
+        for (Map row : rows) {
+            LoadedFile loadedFile = new LoadedFile(
+                    (String) row.get("path"),
+                    ((Number) row.get("size")).longValue(),
+                    ((Number) row.get("last_modified")).longValue(),
+                    (String) row.get("content_hash"),
+                    ((Number) row.get("rows_count")).intValue());
+            loadedFiles.put(loadedFile.getPath(), loadedFile);
+        }
+        return new LoadedFiles(loadedFiles.build());
+    }
+
+    /**
+     * Compares the file with its loaded version, content is hashed only when size or modification time differ.
+     */
+    FileChange check(String csvFile)
+    {
+        File file = new File(csvFile);
+        String path = file.getAbsoluteFile().toPath().normalize().toString();
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        Optional<LoadedFile> loaded = Optional.ofNullable(loadedFiles.get(path));
+        if (loaded.isPresent() && loaded.get().getSize() == size && loaded.get().getLastModified() == lastModified) {
+            return new FileChange(csvFile, FileChange.Status.UNCHANGED, loaded.get());
+        }
+
+        long prefixSize = loaded.map(LoadedFile::getSize).filter(loadedSize -> loadedSize < size).orElse(-1L);
+        Hashes hashes = hash(file, prefixSize);
+        LoadedFile current = new LoadedFile(path, size, lastModified, hashes.getContentHash(), 0);
+        if (!loaded.isPresent()) {
+            return new FileChange(csvFile, FileChange.Status.NEW, current);
+        }
+        String loadedHash = loaded.get().getContentHash();
+        if (loadedHash.equals(hashes.getContentHash())) {
+            return new FileChange(csvFile, FileChange.Status.UNCHANGED, current.withRowsCount(loaded.get().getRowsCount()));
+        }
+        if (hashes.getPrefixHash().map(loadedHash::equals).orElse(false)) {
+            return new FileChange(csvFile, FileChange.Status.GROWN, current.withRowsCount(loaded.get().getRowsCount()));
+        }
+        return new FileChange(csvFile, FileChange.Status.MODIFIED, current);
+    }
+
+    /**
+     * Stores the file as loaded with the given number of rows, using the thread bound connection. It is committed
+     * separately from the loaded rows, so a file could be loaded again, which is harmless as loaders skip stored games.
+     */
+    static void store(FileChange change, int rowsCount)
+    {
+        LoadedFile file = change.getFile();
+        Timestamp loadedAt = new Timestamp(System.currentTimeMillis());
+        Base.openTransaction();
+        try {
+            int updated = Base.exec(
+                    "UPDATE loaded_files SET size = ?, last_modified = ?, content_hash = ?, rows_count = ?, loaded_at = ? WHERE path = ?",
+                    file.getSize(),
+                    file.getLastModified(),
+                    file.getContentHash(),
+                    rowsCount,
+                    loadedAt,
+                    file.getPath());
+            if (updated == 0) {
+                Base.exec(
+                        "INSERT INTO loaded_files (path, size, last_modified, content_hash, rows_count, loaded_at) VALUES (?, ?, ?, ?, ?, ?)",
+                        file.getPath(),
+                        file.getSize(),
+                        file.getLastModified(),
+                        file.getContentHash(),
+                        rowsCount,
+                        loadedAt);
+            }
+            Base.commitTransaction();
+        }
+        catch (RuntimeException e) {
+            Base.rollbackTransaction();
+            throw e;
+        }
+        finally {
+            restoreAutoCommit();
+        }
+    }
+
+    private static void restoreAutoCommit()
+    {
+        try {
+            Base.connection().setAutoCommit(true);
+        }
+        catch (SQLException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Hashes the whole file and, if prefixSize is not negative, its first prefixSize bytes within a single read.
+     */
+    private static Hashes hash(File file, long prefixSize)
+    {
+        try (InputStream input = new FileInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            Optional<String> prefixHash = prefixSize == 0 ? Optional.of(toHex((MessageDigest) digest.clone())) : Optional.empty();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long position = 0;
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                if (position < prefixSize && position + read >= prefixSize) {
+                    int prefixPart = (int) (prefixSize - position);
+                    digest.update(buffer, 0, prefixPart);
+                    prefixHash = Optional.of(toHex((MessageDigest) digest.clone()));
+                    digest.update(buffer, prefixPart, read - prefixPart);
+                }
+                else {
+                    digest.update(buffer, 0, read);
+                }
+                position += read;
+            }
+            return new Hashes(toHex(digest), prefixHash);
+        }
+        catch (IOException | NoSuchAlgorithmException | CloneNotSupportedException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static String toHex(MessageDigest digest)
+    {
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    static final class FileChange
+    {
+        enum Status
+        {
+            NEW, UNCHANGED, GROWN, MODIFIED
+        }
+
+        private final String csvFile;
+        private final Status status;
+        private final LoadedFile file;
+
+        private FileChange(String csvFile, Status status, LoadedFile file)
+        {
+            this.csvFile = requireNonNull(csvFile, "csvFile is null");
+            this.status = requireNonNull(status, "status is null");
+            this.file = requireNonNull(file, "file is null");
+        }
+
+        public String getCsvFile()
+        {
+            return csvFile;
+        }
+
+        public Status getStatus()
+        {
+            return status;
+        }
+
+        /**
+         * @return number of leading rows which were already loaded and do not need to be loaded again
+         */
+        public int getLoadedRows()
+        {
+            if (status == Status.UNCHANGED || status == Status.GROWN) {
+                return file.getRowsCount();
+            }
+            return 0;
+        }
+
+        private LoadedFile getFile()
+        {
+            return file;
+        }
+    }
+
+    private static final class LoadedFile
+    {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String contentHash;
+        private final int rowsCount;
+
+        private LoadedFile(String path, long size, long lastModified, String contentHash, int rowsCount)
+        {
+            checkArgument(rowsCount >= 0, "rowsCount is negative");
+            this.path = requireNonNull(path, "path is null");
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentHash = requireNonNull(contentHash, "contentHash is null");
+            this.rowsCount = rowsCount;
+        }
+
+        public String getPath()
+        {
+            return path;
+        }
+
+        public long getSize()
+        {
+            return size;
+        }
+
+        public long getLastModified()
+        {
+            return lastModified;
+        }
+
+        public String getContentHash()
+        {
+            return contentHash;
+        }
+
+        public int getRowsCount()
+        {
+            return rowsCount;
+        }
+
+        public LoadedFile withRowsCount(int rowsCount)
+        {
+            return new LoadedFile(path, size, lastModified, contentHash, rowsCount);
+        }
+    }
+
+    private static final class Hashes
+    {
+        private final String contentHash;
+        private final Optional<String> prefixHash;
+
+        private Hashes(String contentHash, Optional<String> prefixHash)
+        {
+            this.contentHash = contentHash;
+            this.prefixHash = prefixHash;
+        }
+
+        public String getContentHash()
+        {
+            return contentHash;
+        }
+
+        public Optional<String> getPrefixHash()
+        {
+            return prefixHash;
+        }
+    }
+}
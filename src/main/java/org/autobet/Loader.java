@@ -14,20 +14,23 @@
 
 package org.autobet;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import org.autobet.model.Bet;
 import org.autobet.model.BetType;
 import org.autobet.model.BetVendor;
 import org.autobet.model.Division;
 import org.autobet.model.Game;
 import org.autobet.model.Team;
+import org.autobet.model.TeamGameResult;
+import org.autobet.model.TeamRating;
 import org.javalite.activejdbc.Base;
 import org.javalite.activejdbc.Model;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -37,8 +40,34 @@ import java.util.stream.Stream;
 import static org.autobet.ImmutableCollectors.toImmutableList;
 
 class Loader
+        implements CsvLoader
 {
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yy");
+    static final Map<String, String> GAME_COLUMNS = ImmutableMap.<String, String>builder()
+            .put("full_time_home_team_goals", "fthg")
+            .put("full_time_away_team_goals", "ftag")
+            .put("full_time_result", "ftr")
+            .put("half_time_home_team_goals", "hthg")
+            .put("half_time_away_team_goals", "htag")
+            .put("half_time_result", "htr")
+            .put("attendance", "attendance")
+            .put("referee", "referee")
+            .put("home_team_shots", "hs")
+            .put("away_team_shots", "as")
+            .put("home_team_shots_on_target", "hst")
+            .put("away_team_shots_on_target", "ast")
+            .put("home_team_hit_woodwork", "hhw")
+            .put("away_team_hit_woodwork", "ahw")
+            .put("home_team_corners", "hc")
+            .put("away_team_corners", "ac")
+            .put("home_team_fouls_committed", "hf")
+            .put("away_team_fouls_committed", "af")
+            .put("home_team_offsides", "ho")
+            .put("away_team_offsides", "ao")
+            .put("home_team_yellow_cards", "hy")
+            .put("away_team_yellow_cards", "ay")
+            .put("home_team_red_cards", "hr")
+            .put("away_team_red_cards", "ar")
+            .build();
 
     private final Map<String, BetFactory> betFactories;
 
@@ -65,16 +94,28 @@ class Loader
         return builder.build();
     }
 
+    @Override
     public int load(String csvFile)
+    {
+        try (CsvFileReader csvFileReader = new CsvFileReader(csvFile)) {
+            return loadLines(csvFileReader);
+        }
+    }
+
+    @Override
+    public int load(List<Map<String, String>> lines)
+    {
+        return loadLines(lines);
+    }
+
+    private int loadLines(Iterable<Map<String, String>> lines)
     {
         Base.openTransaction();
         AtomicInteger counter = new AtomicInteger();
-        try (CsvFileReader csvFileReader = new CsvFileReader(csvFile)) {
-            for (Map<String, String> line : csvFileReader) {
-                Division division = loadDivision(line, counter);
-                List<Team> teams = loadTeams(division, line, counter);
-                loadGame(teams, line, counter);
-            }
+        for (Map<String, String> line : lines) {
+            Division division = loadDivision(line, counter);
+            List<Team> teams = loadTeams(division, line, counter);
+            loadGame(teams, line, counter);
         }
         Base.commitTransaction();
         Division.purgeCache();
@@ -120,48 +161,31 @@ class Loader
             Game newGame = new Game()
                     .set("home_team_id", homeTeamId)
                     .set("away_team_id", awayTeamId)
-                    .set("played_at", date)
-                    .set("full_time_home_team_goals", line.get("fthg"))
-                    .set("full_time_away_team_goals", line.get("ftag"))
-                    .set("full_time_result", line.get("ftr"))
-                    .set("half_time_home_team_goals", line.get("hthg"))
-                    .set("half_time_away_team_goals", line.get("htag"))
-                    .set("half_time_result", line.get("htr"))
-                    .set("attendance", line.get("attendance"))
-                    .set("referee", line.get("referee"))
-                    .set("home_team_shots", line.get("hs"))
-                    .set("away_team_shots", line.get("as"))
-                    .set("home_team_shots_on_target", line.get("hst"))
-                    .set("away_team_shots_on_target", line.get("ast"))
-                    .set("home_team_hit_woodwork", line.get("hhw"))
-                    .set("away_team_hit_woodwork", line.get("ahw"))
-                    .set("home_team_corners", line.get("hc"))
-                    .set("away_team_corners", line.get("ac"))
-                    .set("home_team_fouls_committed", line.get("hf"))
-                    .set("away_team_fouls_committed", line.get("af"))
-                    .set("home_team_offsides", line.get("ho"))
-                    .set("away_team_offsides", line.get("ao"))
-                    .set("home_team_yellow_cards", line.get("hy"))
-                    .set("away_team_yellow_cards", line.get("ay"))
-                    .set("home_team_red_cards", line.get("hr"))
-                    .set("away_team_red_cards", line.get("ar"))
-                    .set("home_team_red_cards", line.get("hr"))
-                    .set("away_team_red_cards", line.get("ar"));
+                    .set("played_at", date);
+            for (Map.Entry<String, String> column : GAME_COLUMNS.entrySet()) {
+                newGame.set(column.getKey(), line.get(column.getValue()));
+            }
 
             newGame.saveIt();
             counter.incrementAndGet();
+            TeamGameResult.store(ImmutableList.of(newGame.getLongId()));
+            TeamRating.invalidate(teams.get(0).getLongId(), date);
+            TeamRating.invalidate(teams.get(1).getLongId(), date);
             loadBets(newGame, line, counter);
         }
     }
 
-    private Date parseDate(String date)
+    /**
+     * @return unscaled odds of the scale of the odds column, to be bound to {@link Bet#UNSCALED_ODDS_PLACEHOLDER}
+     */
+    static long parseOdds(String odds)
     {
-        try {
-            return new Date(dateFormat.parse(date + "+0000").getTime());
-        }
-        catch (ParseException e) {
-            throw new RuntimeException(e);
-        }
+        return CsvValues.parseDecimal(odds, Bet.ODDS_SCALE);
+    }
+
+    private static Date parseDate(String date)
+    {
+        return Date.valueOf(LocalDate.ofEpochDay(CsvValues.parseEpochDay(date)));
     }
 
     private <T extends Model> Optional<T> findSingle(List<T> elements)
@@ -180,11 +204,11 @@ class Loader
     private void loadBets(Game game, Map<String, String> line, AtomicInteger counter)
     {
         PreparedStatement preparedStatement = Base.startBatch(
-                "INSERT INTO bets(bet_vendor_id, bet_type_id, game_id, odds) values(?, ?, ?, ?)");
+                "INSERT INTO bets(bet_vendor_id, bet_type_id, game_id, odds) values(?, ?, ?, " + Bet.UNSCALED_ODDS_PLACEHOLDER + ")");
         for (String betKey : betFactories.keySet()) {
             String odds = line.get(betKey);
             if (odds != null) {
-                if (betFactories.get(betKey).createIfNotExists(preparedStatement, game, odds)) {
+                if (betFactories.get(betKey).createIfNotExists(preparedStatement, game, parseOdds(odds))) {
                     counter.incrementAndGet();
                 }
             }
@@ -200,6 +224,6 @@ class Loader
 
     private interface BetFactory
     {
-        boolean createIfNotExists(PreparedStatement preparedStatement, Game game, String odds);
+        boolean createIfNotExists(PreparedStatement preparedStatement, Game game, long odds);
     }
 }
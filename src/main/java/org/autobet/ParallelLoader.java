@@ -0,0 +1,265 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet;
+
+import com.google.common.base.Throwables;
+import org.autobet.LoadedFiles.FileChange;
+import org.javalite.activejdbc.Base;
+import org.javalite.activejdbc.DBException;
+
+import javax.sql.DataSource;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static org.autobet.ImmutableCollectors.toImmutableList;
+
+/**
+ * Loads many csv files concurrently. Files are parsed by a pool of parser threads and handed over through
+ * a bounded queue to a fixed number of writers, each loading whole files with {@link BulkLoader} over its own
+ * connection. All writers share single {@link TeamRegistry}, so concurrently loaded files of the same division
+ * do not create the same division or team twice.
+ */
+class ParallelLoader
+{
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+    private static final long RETRY_DELAY_MILLIS = 100;
+
+    private final DataSource dataSource;
+    private final int parsersCount;
+    private final int writersCount;
+    private final boolean upsert;
+
+    ParallelLoader(DataSource dataSource, int parsersCount, int writersCount)
+    {
+        this(dataSource, parsersCount, writersCount, false);
+    }
+
+    /**
+     * @param upsert whether already stored games are updated, see {@link BulkLoader}
+     */
+    ParallelLoader(DataSource dataSource, int parsersCount, int writersCount, boolean upsert)
+    {
+        checkArgument(parsersCount > 0, "parsersCount must be positive");
+        checkArgument(writersCount > 0, "writersCount must be positive");
+        this.dataSource = requireNonNull(dataSource, "dataSource is null");
+        this.parsersCount = parsersCount;
+        this.writersCount = writersCount;
+        this.upsert = upsert;
+    }
+
+    /**
+     * @return number of database connections used by a load, one per each writer, one for {@link TeamRegistry}
+     * and one already opened by the calling thread
+     */
+    static int getRequiredConnections(int writersCount)
+    {
+        return writersCount + 2;
+    }
+
+    /**
+     * @return number of newly created objects
+     */
+    int load(List<String> csvFiles)
+    {
+        return load(csvFiles, LoadedFiles.none());
+    }
+
+    /**
+     * Loads only rows of files which were not loaded yet according to given loaded files.
+     *
+     * @return number of newly created objects
+     */
+    int load(List<String> csvFiles, LoadedFiles loadedFiles)
+    {
+        BlockingQueue<ParsedFile> parsedFiles = new ArrayBlockingQueue<>(writersCount * 2);
+        AtomicInteger remainingFiles = new AtomicInteger(csvFiles.size());
+        ExecutorService parsers = Executors.newFixedThreadPool(parsersCount);
+        ExecutorService writers = Executors.newFixedThreadPool(writersCount);
+        try (TeamRegistry teamRegistry = TeamRegistry.committedSeparately(dataSource)) {
+            for (String csvFile : csvFiles) {
+                parsers.execute(() -> put(parsedFiles, parse(csvFile, loadedFiles)));
+            }
+            List<CompletableFuture<Integer>> futures = IntStream.range(0, writersCount)
+                    .mapToObj(i -> supplyAsync(() -> write(parsedFiles, remainingFiles, teamRegistry), writers))
+                    .collect(toImmutableList());
+
+            int count = 0;
+            for (CompletableFuture<Integer> future : futures) {
+                count += future.get();
+            }
+            return count;
+        }
+        catch (InterruptedException | ExecutionException e) {
+            throw Throwables.propagate(e);
+        }
+        finally {
+            parsers.shutdownNow();
+            writers.shutdownNow();
+        }
+    }
+
+    private static ParsedFile parse(String csvFile, LoadedFiles loadedFiles)
+    {
+        try {
+            FileChange change = loadedFiles.check(csvFile);
+            if (change.getStatus() == FileChange.Status.UNCHANGED) {
+                return new ParsedFile(change, null);
+            }
+            return new ParsedFile(change, BulkLoader.read(csvFile));
+        }
+        catch (RuntimeException e) {
+            return new ParsedFile(csvFile, e);
+        }
+    }
+
+    private static void put(BlockingQueue<ParsedFile> parsedFiles, ParsedFile parsedFile)
+    {
+        try {
+            parsedFiles.put(parsedFile);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int write(BlockingQueue<ParsedFile> parsedFiles, AtomicInteger remainingFiles, TeamRegistry teamRegistry)
+    {
+        Base.open(dataSource);
+        try {
+            BulkLoader loader = new BulkLoader(teamRegistry, upsert);
+            int count = 0;
+            while (remainingFiles.getAndDecrement() > 0) {
+                count += write(loader, parsedFiles.take());
+            }
+            return count;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        }
+        finally {
+            Base.close();
+        }
+    }
+
+    /**
+     * Files written concurrently may contain the same games, like fixtures and results of a season. Writer which
+     * conflicts with another one inserting the same game rolls the whole file back and loads it again, then the
+     * games stored by the other writer in the meantime are found and skipped.
+     */
+    private static int write(BulkLoader loader, ParsedFile parsedFile)
+            throws InterruptedException
+    {
+        long start = currentTimeMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                FileChange change = parsedFile.getChange();
+                if (change.getStatus() == FileChange.Status.UNCHANGED) {
+                    LoadedFiles.store(change, change.getLoadedRows());
+                    return 0;
+                }
+                int count = IncrementalLoader.load(change, parsedFile.getLines(), loader);
+                System.out.println("loaded " + count + " new objects from " + parsedFile.getCsvFile() + " in:" + (currentTimeMillis() - start) + "ms");
+                return count;
+            }
+            catch (DBException ex) {
+                if (attempt < MAX_WRITE_ATTEMPTS && isConflict(ex)) {
+                    // give the conflicting writer time to commit
+                    Thread.sleep(attempt * RETRY_DELAY_MILLIS);
+                    continue;
+                }
+                System.out.println("Unable to load: " + parsedFile.getCsvFile());
+                System.out.println(ex.getMessage());
+                ex.printStackTrace();
+                return 0;
+            }
+        }
+    }
+
+    private static boolean isConflict(DBException e)
+    {
+        for (Throwable cause : Throwables.getCausalChain(e)) {
+            if (cause instanceof SQLException) {
+                for (SQLException sqlException = (SQLException) cause; sqlException != null; sqlException = sqlException.getNextException()) {
+                    // integrity constraint violation or transaction rollback, like a deadlock
+                    String sqlState = sqlException.getSQLState();
+                    if (sqlState != null && (sqlState.startsWith("23") || sqlState.startsWith("40"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static final class ParsedFile
+    {
+        private final String csvFile;
+        private final FileChange change;
+        private final List<Map<String, String>> lines;
+        private final RuntimeException failure;
+
+        private ParsedFile(FileChange change, List<Map<String, String>> lines)
+        {
+            this.csvFile = change.getCsvFile();
+            this.change = change;
+            this.lines = lines;
+            this.failure = null;
+        }
+
+        private ParsedFile(String csvFile, RuntimeException failure)
+        {
+            this.csvFile = csvFile;
+            this.change = null;
+            this.lines = null;
+            this.failure = failure;
+        }
+
+        public String getCsvFile()
+        {
+            return csvFile;
+        }
+
+        public FileChange getChange()
+        {
+            if (failure != null) {
+                throw failure;
+            }
+            return change;
+        }
+
+        public List<Map<String, String>> getLines()
+        {
+            if (failure != null) {
+                throw failure;
+            }
+            return lines;
+        }
+    }
+}
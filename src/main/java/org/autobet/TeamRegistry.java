@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import net.jcip.annotations.ThreadSafe;
+import org.autobet.model.Division;
+import org.autobet.model.Team;
+import org.javalite.activejdbc.Base;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * In memory ids of divisions and teams, new ones are created on the first lookup.
+ * <p>
+ * Registry created with {@link #inCurrentConnection()} creates rows with the thread bound connection, so they are
+ * part of the caller transaction and {@link #afterRollback()} has to be called once it is rolled back.
+ * Registry created with {@link #committedSeparately(DataSource)} can be shared by many loading threads, it creates
+ * rows over its own auto committed connection, so created ids are valid regardless of the callers transactions.
+ */
+@ThreadSafe
+class TeamRegistry
+        implements AutoCloseable
+{
+    private final Optional<DataSource> dataSource;
+    private final Map<String, Long> divisionIds = new HashMap<>();
+    private final Table<Long, String, Long> teamIds = HashBasedTable.create();
+    private Connection connection;
+
+    static TeamRegistry inCurrentConnection()
+    {
+        return new TeamRegistry(Optional.empty());
+    }
+
+    static TeamRegistry committedSeparately(DataSource dataSource)
+    {
+        return new TeamRegistry(Optional.of(requireNonNull(dataSource, "dataSource is null")));
+    }
+
+    private TeamRegistry(Optional<DataSource> dataSource)
+    {
+        this.dataSource = dataSource;
+        reload();
+    }
+
+    /**
+     * Forgets divisions and teams created within a rolled back transaction.
+     */
+    public synchronized void afterRollback()
+    {
+        if (!dataSource.isPresent()) {
+            reload();
+        }
+    }
+
+    private void reload()
+    {
+        divisionIds.clear();
+        teamIds.clear();
+        // queried directly, as models of divisions and teams are cached
+        for (Map<String, Object> division : Base.findAll("SELECT id, name FROM divisions")) {
+            divisionIds.put((String) division.get("name"), ((Number) division.get("id")).longValue());
+        }
+        for (Map<String, Object> team : Base.findAll("SELECT id, division_id, name FROM teams")) {
+            teamIds.put(((Number) team.get("division_id")).longValue(), (String) team.get("name"), ((Number) team.get("id")).longValue());
+        }
+    }
+
+    public synchronized long getDivisionId(String name, AtomicInteger counter)
+    {
+        Long divisionId = divisionIds.get(name);
+        if (divisionId == null) {
+            if (dataSource.isPresent()) {
+                divisionId = insert("INSERT INTO divisions(name) VALUES (?)", name);
+            }
+            else {
+                Division division = new Division().set("name", name);
+                division.saveIt();
+                divisionId = division.getLong("id");
+            }
+            counter.incrementAndGet();
+            divisionIds.put(name, divisionId);
+        }
+        return divisionId;
+    }
+
+    public synchronized long getTeamId(long divisionId, String name, AtomicInteger counter)
+    {
+        Long teamId = teamIds.get(divisionId, name);
+        if (teamId == null) {
+            if (dataSource.isPresent()) {
+                teamId = insert("INSERT INTO teams(name, division_id) VALUES (?, ?)", name, divisionId);
+            }
+            else {
+                Team team = new Team().set("name", name).set("division_id", divisionId);
+                team.saveIt();
+                teamId = team.getLong("id");
+            }
+            counter.incrementAndGet();
+            teamIds.put(divisionId, name, teamId);
+        }
+        return teamId;
+    }
+
+    private long insert(String sql, Object... parameters)
+    {
+        try {
+            if (connection == null) {
+                connection = dataSource.get().getConnection();
+                connection.setAutoCommit(true);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                statement.executeUpdate();
+                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                    checkState(generatedKeys.next(), "No id generated for: %s", sql);
+                    return generatedKeys.getLong(1);
+                }
+            }
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+            connection = null;
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
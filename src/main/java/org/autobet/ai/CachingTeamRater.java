@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.ai;
+
+import org.autobet.model.Team;
+import org.autobet.model.TeamRating;
+import org.autobet.util.GamesSnapshot;
+
+import java.sql.Date;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps ratings of the delegate in the database, so each team is rated on a given date only once across runs.
+ * Ratings are keyed by the delegate name and version, stale ones are removed by {@link TeamRating#invalidate}
+ * when games are loaded. Snapshot ratings are computed in memory and are not cached.
+ */
+public class CachingTeamRater
+        implements TeamRater
+{
+    private final TeamRater delegate;
+    private final String cacheKey;
+
+    public CachingTeamRater(TeamRater delegate)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.cacheKey = delegate.getName() + "_v" + delegate.getVersion();
+    }
+
+    @Override
+    public Optional<Integer> rate(Team team, Date date)
+    {
+        long teamId = team.getLongId();
+        Optional<TeamRating> cached = TeamRating.find(cacheKey, teamId, date);
+        if (cached.isPresent()) {
+            return cached.get().getRate();
+        }
+        Optional<Integer> rate = delegate.rate(team, date);
+        TeamRating.store(cacheKey, teamId, date, rate);
+        return rate;
+    }
+
+    @Override
+    public Optional<Integer> rate(GamesSnapshot snapshot, int game)
+    {
+        return delegate.rate(snapshot, game);
+    }
+
+    @Override
+    public int getVersion()
+    {
+        return delegate.getVersion();
+    }
+
+    @Override
+    public String getName()
+    {
+        return delegate.getName();
+    }
+}
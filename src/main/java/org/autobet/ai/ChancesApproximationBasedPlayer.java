@@ -17,6 +17,7 @@ package org.autobet.ai;
 import com.google.common.collect.ImmutableList;
 import org.autobet.model.Bet;
 import org.autobet.model.Game;
+import org.autobet.util.GamesSnapshot;
 
 import java.util.List;
 import java.util.Optional;
@@ -24,16 +25,30 @@ import java.util.Optional;
 public class ChancesApproximationBasedPlayer
         implements Player
 {
-    private final static double PLAYING_AWARD_THRESHOLD = 0.3;
+    public final static double DEFAULT_PLAYING_AWARD_THRESHOLD = 0.3;
+
     private final TeamRatersStatsApproximation statsApproximation;
     private final TeamRater teamRater;
+    private final double playingAwardThreshold;
 
     public ChancesApproximationBasedPlayer(
             TeamRatersStatsApproximation statsApproximation,
             TeamRater teamRater)
+    {
+        this(statsApproximation, teamRater, DEFAULT_PLAYING_AWARD_THRESHOLD);
+    }
+
+    /**
+     * @param playingAwardThreshold minimal expected award of a bet for it to be played
+     */
+    public ChancesApproximationBasedPlayer(
+            TeamRatersStatsApproximation statsApproximation,
+            TeamRater teamRater,
+            double playingAwardThreshold)
     {
         this.statsApproximation = statsApproximation;
         this.teamRater = teamRater;
+        this.playingAwardThreshold = playingAwardThreshold;
     }
 
     @Override
@@ -49,21 +64,57 @@ public class ChancesApproximationBasedPlayer
         ImmutableList.Builder<Bet> selectedBets = ImmutableList.builder();
         for (Bet bet : availableBets) {
             double chancesToWin;
-            if (bet.getBetType().isFullTimeHomeWin()) {
-                chancesToWin = homeWinChances;
+            switch (bet.getResult()) {
+                case 'H':
+                    chancesToWin = homeWinChances;
+                    break;
+                case 'D':
+                    chancesToWin = drawChances;
+                    break;
+                case 'A':
+                    chancesToWin = homeLoseChances;
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected bet type: " + bet.getBetType().toJson(false));
             }
-            else if (bet.getBetType().isFullTimeDraw()) {
-                chancesToWin = drawChances;
-            }
-            else if (bet.getBetType().isFullTimeAwayWin()) {
-                chancesToWin = homeLoseChances;
+            double award = bet.getOdds() - 1;
+            double expectedAward = (chancesToWin * award - (1 - chancesToWin));
+            if (expectedAward > playingAwardThreshold) {
+                selectedBets.add(bet);
             }
-            else {
-                throw new IllegalStateException("Unexpected bet type: " + bet.getBetType().toJson(false));
+        }
+        return selectedBets.build();
+    }
+
+    @Override
+    public List<Integer> guess(GamesSnapshot snapshot, int game)
+    {
+        Optional<Integer> rate = teamRater.rate(snapshot, game);
+        if (!rate.isPresent()) {
+            return ImmutableList.of();
+        }
+        double homeWinChances = statsApproximation.getHomeWinChances(rate.get());
+        double homeLoseChances = statsApproximation.getHomeLoseChances(rate.get());
+        double drawChances = statsApproximation.getDrawChances(rate.get());
+        ImmutableList.Builder<Integer> selectedBets = ImmutableList.builder();
+        for (int bet = snapshot.getBetsStart(game); bet < snapshot.getBetsEnd(game); bet++) {
+            double chancesToWin;
+            switch (snapshot.getBetResult(bet)) {
+                case 'H':
+                    chancesToWin = homeWinChances;
+                    break;
+                case 'D':
+                    chancesToWin = drawChances;
+                    break;
+                case 'A':
+                    chancesToWin = homeLoseChances;
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected bet type: " + snapshot.getBetTypeId(bet));
             }
-            double award = bet.getOdds() - 1;
+            double award = snapshot.getOdds(bet) - 1;
             double expectedAward = (chancesToWin * award - (1 - chancesToWin));
-            if (expectedAward > PLAYING_AWARD_THRESHOLD) {
+            if (expectedAward > playingAwardThreshold) {
                 selectedBets.add(bet);
             }
         }
@@ -14,15 +14,17 @@
 
 package org.autobet.ai;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.autobet.model.Team;
+import org.autobet.util.GamesSnapshot;
 import org.javalite.activejdbc.Base;
 
-import java.math.BigDecimal;
 import java.sql.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
@@ -30,6 +32,33 @@ import static java.util.Objects.requireNonNull;
 public class GoalBasedTeamRater
         implements TeamRater
 {
+    private static final int DEFAULT_GAMES_COUNT = 6;
+
+    @VisibleForTesting
+    public static final String RATE_QUERY = "SELECT count(*) AS count, sum(scored) AS total_scored, sum(conceded) AS total_lost FROM (" +
+            "SELECT scored, conceded " +
+            "FROM team_game_results " +
+            "WHERE team_id = ? AND played_at < ? " +
+            "ORDER BY played_at DESC " +
+            "LIMIT ?) tmp";
+
+    private final int gamesCount;
+    private volatile RollingGoalBasedRatings ratings;
+
+    public GoalBasedTeamRater()
+    {
+        this(DEFAULT_GAMES_COUNT);
+    }
+
+    /**
+     * @param gamesCount number of last games of the team which are taken into account
+     */
+    public GoalBasedTeamRater(int gamesCount)
+    {
+        checkArgument(gamesCount > 0, "gamesCount has to be positive");
+        this.gamesCount = gamesCount;
+    }
+
     @Override
     public Optional<Integer> rate(Team team, Date date)
     {
@@ -37,38 +66,56 @@ public class GoalBasedTeamRater
         requireNonNull(date, "date is null");
 
         List<Map> ratings = Base.findAll(
-                "SELECT count(*) AS count, sum(scored) AS total_scored, sum(lost) AS total_lost FROM (" +
-                        "SELECT CASE home_team_id " +
-                        "WHEN ? THEN full_time_home_team_goals ELSE full_time_away_team_goals END AS scored," +
-                        "CASE home_team_id " +
-                        "WHEN ? THEN full_time_away_team_goals ELSE full_time_home_team_goals END AS lost " +
-                        "FROM games " +
-                        "WHERE ? IN (home_team_id, away_team_id) and played_at < ? " +
-                        "ORDER BY played_at DESC " +
-                        "LIMIT ?) tmp",
-                team.getId(),
-                team.getId(),
+                RATE_QUERY,
                 team.getId(),
                 date,
-                6);
+                gamesCount);
 
         checkState(ratings.size() == 1, "Expected only one row, bug got: %s", ratings.size());
 
         Map rating = ratings.get(0);
 
-        if ((Long) rating.get("count") != 6) {
+        // numeric types of aggregates differ between databases
+        if (((Number) rating.get("count")).longValue() != gamesCount) {
             return Optional.empty();
         }
 
-        BigDecimal totalScored = (BigDecimal) rating.get("total_scored");
-        BigDecimal totalLost = (BigDecimal) rating.get("total_lost");
+        long totalScored = ((Number) rating.get("total_scored")).longValue();
+        long totalLost = ((Number) rating.get("total_lost")).longValue();
 
-        return Optional.of(toIntExact(totalScored.subtract(totalLost).longValue()));
+        return Optional.of(toIntExact(totalScored - totalLost));
+    }
+
+    @Override
+    public Optional<Integer> rate(GamesSnapshot snapshot, int game)
+    {
+        int rate = getRatings(snapshot).getRate(game);
+        if (rate == RollingGoalBasedRatings.NO_RATE) {
+            return Optional.empty();
+        }
+        return Optional.of(rate);
+    }
+
+    private RollingGoalBasedRatings getRatings(GamesSnapshot snapshot)
+    {
+        RollingGoalBasedRatings ratings = this.ratings;
+        if (ratings != null && ratings.isFor(snapshot)) {
+            return ratings;
+        }
+        synchronized (this) {
+            if (this.ratings == null || !this.ratings.isFor(snapshot)) {
+                this.ratings = new RollingGoalBasedRatings(snapshot, gamesCount);
+            }
+            return this.ratings;
+        }
     }
 
     @Override
     public String getName()
     {
-        return "goal_based";
+        if (gamesCount == DEFAULT_GAMES_COUNT) {
+            return "goal_based";
+        }
+        return "goal_based_" + gamesCount;
     }
 }
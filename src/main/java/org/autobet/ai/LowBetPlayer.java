@@ -16,14 +16,18 @@ package org.autobet.ai;
 
 import org.autobet.model.Bet;
 import org.autobet.model.Game;
+import org.autobet.util.GamesSnapshot;
 
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.autobet.ImmutableCollectors.toImmutableList;
 
 public class LowBetPlayer
         implements Player
 {
+    private static final double MAX_ODDS = 1.2d;
+
     @Override
     public String getName()
     {
@@ -34,7 +38,16 @@ public class LowBetPlayer
     public List<Bet> guess(Game game, List<Bet> availableBets)
     {
         return availableBets.stream()
-                .filter(bet -> bet.getOdds() < 1.2d)
+                .filter(bet -> bet.getOdds() < MAX_ODDS)
+                .collect(toImmutableList());
+    }
+
+    @Override
+    public List<Integer> guess(GamesSnapshot snapshot, int game)
+    {
+        return IntStream.range(snapshot.getBetsStart(game), snapshot.getBetsEnd(game))
+                .filter(bet -> snapshot.getOdds(bet) < MAX_ODDS)
+                .boxed()
                 .collect(toImmutableList());
     }
 }
@@ -16,6 +16,7 @@ package org.autobet.ai;
 
 import org.autobet.model.Bet;
 import org.autobet.model.Game;
+import org.autobet.util.GamesSnapshot;
 import org.autobet.util.Named;
 
 import java.util.List;
@@ -24,4 +25,9 @@ public interface Player
         extends Named
 {
     List<Bet> guess(Game game, List<Bet> availableBets);
+
+    /**
+     * @return indexes of selected bets from the game bets stored in the snapshot
+     */
+    List<Integer> guess(GamesSnapshot snapshot, int game);
 }
@@ -15,17 +15,29 @@
 package org.autobet.ai;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.hash.Hashing;
 import org.autobet.model.Bet;
 import org.autobet.model.Game;
+import org.autobet.util.BinaryInput;
+import org.autobet.util.BinaryOutput;
 import org.autobet.util.GamesProcessorDriver;
+import org.autobet.util.GamesSnapshot;
 import org.autobet.util.KeyValueStore;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+import static org.autobet.ImmutableCollectors.toImmutableList;
 
 public class PlayerEvaluator
 {
@@ -41,6 +53,85 @@ public class PlayerEvaluator
         return gamesProcessorDriver.driveProcessors(() -> new GameProcessor(player), gamesLimit, timeLimit);
     }
 
+    public Statistics evaluate(Player player, GamesSnapshot snapshot, Optional<Integer> gamesLimit, Optional<Duration> timeLimit)
+    {
+        return gamesProcessorDriver.driveProcessors(snapshot, () -> new GameProcessor(player), gamesLimit, timeLimit);
+    }
+
+    /**
+     * Evaluates all the players in a single pass over games.
+     *
+     * @return statistics per player name
+     */
+    public Map<String, Statistics> evaluate(List<Player> players, Optional<Integer> gamesLimit, Optional<Duration> timeLimit)
+    {
+        return gamesProcessorDriver.driveProcessors(() -> new PlayersGameProcessor(players), gamesLimit, timeLimit)
+                .getStatistics();
+    }
+
+    public Map<String, Statistics> evaluate(List<Player> players, GamesSnapshot snapshot, Optional<Integer> gamesLimit, Optional<Duration> timeLimit)
+    {
+        return evaluate(players, snapshot, 0, gamesLimit, timeLimit);
+    }
+
+    /**
+     * Evaluates all the players on the snapshot games starting from the given one.
+     *
+     * @return statistics per player name
+     */
+    public Map<String, Statistics> evaluate(
+            List<Player> players,
+            GamesSnapshot snapshot,
+            int firstGame,
+            Optional<Integer> gamesLimit,
+            Optional<Duration> timeLimit)
+    {
+        return gamesProcessorDriver.driveProcessors(snapshot, firstGame, () -> new PlayersGameProcessor(players), gamesLimit, timeLimit)
+                .getStatistics();
+    }
+
+    private final class PlayersGameProcessor
+            implements GamesProcessorDriver.GamesProcessor<PlayersStatistics>
+    {
+        private final List<GameProcessor> gameProcessors;
+
+        public PlayersGameProcessor(List<Player> players)
+        {
+            checkArgument(!players.isEmpty(), "No players to evaluate");
+            List<String> names = players.stream()
+                    .map(Player::getName)
+                    .collect(toImmutableList());
+            checkArgument(ImmutableSet.copyOf(names).size() == names.size(), "Players to evaluate have to be distinct: %s", names);
+            this.gameProcessors = players.stream()
+                    .map(GameProcessor::new)
+                    .collect(toImmutableList());
+        }
+
+        @Override
+        public void process(Game game)
+        {
+            for (GameProcessor gameProcessor : gameProcessors) {
+                gameProcessor.process(game);
+            }
+        }
+
+        @Override
+        public void process(GamesSnapshot snapshot, int game)
+        {
+            for (GameProcessor gameProcessor : gameProcessors) {
+                gameProcessor.process(snapshot, game);
+            }
+        }
+
+        @Override
+        public PlayersStatistics finish()
+        {
+            return new PlayersStatistics(gameProcessors.stream()
+                    .map(GameProcessor::finish)
+                    .collect(toImmutableList()));
+        }
+    }
+
     private final class GameProcessor
             implements GamesProcessorDriver.GamesProcessor<Statistics>
     {
@@ -71,6 +162,21 @@ public class PlayerEvaluator
             playedBetsCount += selectedBets.size();
         }
 
+        @Override
+        public void process(GamesSnapshot snapshot, int game)
+        {
+            List<Integer> selectedBets = player.guess(snapshot, game);
+            for (int bet : selectedBets) {
+                if (snapshot.isWinning(game, bet)) {
+                    result += snapshot.getOdds(bet);
+                    winningBetCount++;
+                }
+                result -= 1;
+            }
+            betsCount += snapshot.getBetsEnd(game) - snapshot.getBetsStart(game);
+            playedBetsCount += selectedBets.size();
+        }
+
         @Override
         public Statistics finish()
         {
@@ -78,9 +184,128 @@ public class PlayerEvaluator
         }
     }
 
+    /**
+     * Statistics of many players gathered together, stored under a hash of all the player names, so the key
+     * fits the store regardless of the number of players.
+     */
+    public static class PlayersStatistics
+            implements KeyValueStore.Storable<PlayersStatistics>
+    {
+        public static final KeyValueStore.Codec<PlayersStatistics> CODEC = new KeyValueStore.Codec<PlayersStatistics>()
+        {
+            @Override
+            public Class<PlayersStatistics> getType()
+            {
+                return PlayersStatistics.class;
+            }
+
+            @Override
+            public void encode(PlayersStatistics playersStatistics, BinaryOutput output)
+            {
+                output.writeVarint(playersStatistics.statistics.size());
+                for (Statistics statistics : playersStatistics.statistics.values()) {
+                    Statistics.CODEC.encode(statistics, output);
+                }
+            }
+
+            @Override
+            public PlayersStatistics decode(BinaryInput input)
+            {
+                int count = input.readIntVarint();
+                ImmutableList.Builder<Statistics> statistics = ImmutableList.builder();
+                for (int i = 0; i < count; i++) {
+                    statistics.add(Statistics.CODEC.decode(input));
+                }
+                return new PlayersStatistics(statistics.build());
+            }
+        };
+
+        private final Map<String, Statistics> statistics;
+
+        @JsonCreator
+        public PlayersStatistics(@JsonProperty("statistics") List<Statistics> statistics)
+        {
+            ImmutableSortedMap.Builder<String, Statistics> statisticsByPlayer = ImmutableSortedMap.naturalOrder();
+            for (Statistics playerStatistics : statistics) {
+                statisticsByPlayer.put(playerStatistics.getStorageKey(), playerStatistics);
+            }
+            this.statistics = statisticsByPlayer.build();
+        }
+
+        @JsonProperty("statistics")
+        public List<Statistics> getStatisticsList()
+        {
+            return ImmutableList.copyOf(statistics.values());
+        }
+
+        @JsonIgnore
+        public Map<String, Statistics> getStatistics()
+        {
+            return statistics;
+        }
+
+        @JsonIgnore
+        @Override
+        public String getStorageKey()
+        {
+            return "players:" + Hashing.sha256().hashString(statistics.keySet().stream().collect(joining(",")), UTF_8);
+        }
+
+        @JsonIgnore
+        @Override
+        public KeyValueStore.Codec<PlayersStatistics> getCodec()
+        {
+            return CODEC;
+        }
+
+        @Override
+        public PlayersStatistics merge(PlayersStatistics other)
+        {
+            checkArgument(
+                    statistics.keySet().equals(other.statistics.keySet()),
+                    "Statistics have to be of the same players to be merged: %s vs %s",
+                    statistics.keySet(),
+                    other.statistics.keySet());
+
+            return new PlayersStatistics(statistics.values().stream()
+                    .map(playerStatistics -> playerStatistics.merge(other.statistics.get(playerStatistics.getStorageKey())))
+                    .collect(toImmutableList()));
+        }
+    }
+
     public static class Statistics
             implements KeyValueStore.Storable<Statistics>
     {
+        public static final KeyValueStore.Codec<Statistics> CODEC = new KeyValueStore.Codec<Statistics>()
+        {
+            @Override
+            public Class<Statistics> getType()
+            {
+                return Statistics.class;
+            }
+
+            @Override
+            public void encode(Statistics statistics, BinaryOutput output)
+            {
+                output.writeString(statistics.storageKey);
+                output.writeDouble(statistics.result);
+                output.writeVarint(statistics.betsCount);
+                output.writeVarint(statistics.playedBetsCount);
+                output.writeVarint(statistics.winningBetsCount);
+            }
+
+            @Override
+            public Statistics decode(BinaryInput input)
+            {
+                return new Statistics(
+                        input.readString(),
+                        input.readDouble(),
+                        input.readIntVarint(),
+                        input.readIntVarint(),
+                        input.readIntVarint());
+            }
+        };
+
         private final String storageKey;
         private final double result;
         private final int betsCount;
@@ -115,6 +340,13 @@ public class PlayerEvaluator
             return storageKey;
         }
 
+        @JsonIgnore
+        @Override
+        public KeyValueStore.Codec<Statistics> getCodec()
+        {
+            return CODEC;
+        }
+
         @JsonProperty("betsCount")
         public int getBetsCount()
         {
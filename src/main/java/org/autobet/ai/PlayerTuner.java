@@ -0,0 +1,252 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.ai;
+
+import com.google.common.collect.ImmutableList;
+import org.autobet.ai.TeamRaterStatsCollector.TeamRaterStats;
+import org.autobet.model.Bet;
+import org.autobet.model.Game;
+import org.autobet.util.GamesSnapshot;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.groupingBy;
+import static org.autobet.ImmutableCollectors.toImmutableList;
+
+/**
+ * Searches for the best parameters of {@link ChancesApproximationBasedPlayer} using {@link GoalBasedTeamRater}.
+ * <p>
+ * Ratings and statistics are computed once per rater window and then shared by all configurations
+ * using it, while all the configurations are evaluated in a single parallel pass over the snapshot
+ * games which follow the training ones, so the approximations are not evaluated on games they were fitted to.
+ */
+public class PlayerTuner
+{
+    private final TeamRaterStatsCollector statsCollector;
+    private final PlayerEvaluator playerEvaluator;
+
+    public PlayerTuner(TeamRaterStatsCollector statsCollector, PlayerEvaluator playerEvaluator)
+    {
+        this.statsCollector = requireNonNull(statsCollector, "statsCollector is null");
+        this.playerEvaluator = requireNonNull(playerEvaluator, "playerEvaluator is null");
+    }
+
+    /**
+     * @param trainingGames number of the first snapshot games used to collect rater statistics for each rater window
+     * @param gamesLimit number of the games following the training ones to evaluate configurations on
+     * @return evaluation results of all the configurations, the best ones first
+     */
+    public List<Result> tune(
+            GamesSnapshot snapshot,
+            List<Configuration> configurations,
+            int trainingGames,
+            Optional<Integer> gamesLimit,
+            Optional<Duration> timeLimit)
+    {
+        requireNonNull(snapshot, "snapshot is null");
+        checkArgument(!configurations.isEmpty(), "configurations are empty");
+        checkArgument(trainingGames > 0, "trainingGames has to be positive");
+        checkArgument(
+                trainingGames < snapshot.getGamesCount(),
+                "trainingGames has to be less than the snapshot games count %s to leave games for evaluation",
+                snapshot.getGamesCount());
+        checkArgument(configurations.stream().distinct().count() == configurations.size(), "configurations are not unique");
+
+        Map<Integer, List<Configuration>> configurationsByWindow = configurations.stream()
+                .collect(groupingBy(Configuration::getWindow));
+
+        List<ConfiguredPlayer> players = new ArrayList<>();
+        for (Map.Entry<Integer, List<Configuration>> entry : configurationsByWindow.entrySet()) {
+            TeamRater teamRater = new GoalBasedTeamRater(entry.getKey());
+            TeamRaterStats stats = statsCollector.collect(teamRater, snapshot, Optional.of(trainingGames), Optional.empty());
+            Map<Integer, List<Configuration>> configurationsByDegree = entry.getValue().stream()
+                    .collect(groupingBy(Configuration::getDegree));
+            for (Map.Entry<Integer, List<Configuration>> degreeEntry : configurationsByDegree.entrySet()) {
+                TeamRatersStatsApproximation approximation = new TeamRatersStatsApproximation(stats, degreeEntry.getKey());
+                for (Configuration configuration : degreeEntry.getValue()) {
+                    players.add(new ConfiguredPlayer(
+                            configuration,
+                            new ChancesApproximationBasedPlayer(approximation, teamRater, configuration.getThreshold())));
+                }
+            }
+        }
+
+        Map<String, PlayerEvaluator.Statistics> evaluations = playerEvaluator.evaluate(
+                ImmutableList.<Player>copyOf(players),
+                snapshot,
+                trainingGames,
+                gamesLimit,
+                timeLimit);
+
+        return players.stream()
+                .map(player -> new Result(player.getConfiguration(), evaluations.get(player.getName())))
+                .sorted(Comparator.comparingDouble((Result result) -> result.getStatistics().getResult()).reversed())
+                .collect(toImmutableList());
+    }
+
+    /**
+     * @return all combinations of the given parameter values
+     */
+    public static List<Configuration> grid(List<Integer> windows, List<Integer> degrees, List<Double> thresholds)
+    {
+        ImmutableList.Builder<Configuration> configurations = ImmutableList.builder();
+        for (int window : windows) {
+            for (int degree : degrees) {
+                for (double threshold : thresholds) {
+                    configurations.add(new Configuration(window, degree, threshold));
+                }
+            }
+        }
+        return configurations.build();
+    }
+
+    /**
+     * @return random subset of the given configurations of at most count elements
+     */
+    public static List<Configuration> sample(List<Configuration> configurations, int count, Random random)
+    {
+        checkArgument(count > 0, "count has to be positive");
+        List<Configuration> shuffled = new ArrayList<>(configurations);
+        Collections.shuffle(shuffled, random);
+        return ImmutableList.copyOf(shuffled.subList(0, Math.min(count, shuffled.size())));
+    }
+
+    public static class Configuration
+    {
+        private final int window;
+        private final int degree;
+        private final double threshold;
+
+        public Configuration(int window, int degree, double threshold)
+        {
+            checkArgument(window > 0, "window has to be positive");
+            checkArgument(degree >= 0, "degree has to be non negative");
+            this.window = window;
+            this.degree = degree;
+            this.threshold = threshold;
+        }
+
+        public int getWindow()
+        {
+            return window;
+        }
+
+        public int getDegree()
+        {
+            return degree;
+        }
+
+        public double getThreshold()
+        {
+            return threshold;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Configuration that = (Configuration) o;
+            return window == that.window &&
+                    degree == that.degree &&
+                    Double.compare(that.threshold, threshold) == 0;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(window, degree, threshold);
+        }
+
+        @Override
+        public String toString()
+        {
+            return format("window=%d,degree=%d,threshold=%s", window, degree, threshold);
+        }
+    }
+
+    public static class Result
+    {
+        private final Configuration configuration;
+        private final PlayerEvaluator.Statistics statistics;
+
+        public Result(Configuration configuration, PlayerEvaluator.Statistics statistics)
+        {
+            this.configuration = requireNonNull(configuration, "configuration is null");
+            this.statistics = requireNonNull(statistics, "statistics is null");
+        }
+
+        public Configuration getConfiguration()
+        {
+            return configuration;
+        }
+
+        public PlayerEvaluator.Statistics getStatistics()
+        {
+            return statistics;
+        }
+    }
+
+    private static class ConfiguredPlayer
+            implements Player
+    {
+        private final Configuration configuration;
+        private final Player delegate;
+
+        public ConfiguredPlayer(Configuration configuration, Player delegate)
+        {
+            this.configuration = configuration;
+            this.delegate = delegate;
+        }
+
+        public Configuration getConfiguration()
+        {
+            return configuration;
+        }
+
+        @Override
+        public List<Bet> guess(Game game, List<Bet> availableBets)
+        {
+            return delegate.guess(game, availableBets);
+        }
+
+        @Override
+        public List<Integer> guess(GamesSnapshot snapshot, int game)
+        {
+            return delegate.guess(snapshot, game);
+        }
+
+        @Override
+        public String getName()
+        {
+            return configuration.toString();
+        }
+    }
+}
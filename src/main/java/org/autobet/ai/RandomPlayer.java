@@ -17,6 +17,7 @@ package org.autobet.ai;
 import com.google.common.collect.ImmutableList;
 import org.autobet.model.Bet;
 import org.autobet.model.Game;
+import org.autobet.util.GamesSnapshot;
 
 import java.util.List;
 import java.util.Random;
@@ -39,6 +40,21 @@ public class RandomPlayer
         return ImmutableList.of(availableBets.get(guess));
     }
 
+    @Override
+    public List<Integer> guess(GamesSnapshot snapshot, int game)
+    {
+        double randomDouble = random.nextDouble();
+
+        int betsStart = snapshot.getBetsStart(game);
+        int betsCount = snapshot.getBetsEnd(game) - betsStart;
+        int guess = (int) (randomDouble * (betsCount + 1));
+
+        if (guess >= betsCount) {
+            return ImmutableList.of();
+        }
+        return ImmutableList.of(betsStart + guess);
+    }
+
     @Override
     public String getName()
     {
@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.ai;
+
+import net.jcip.annotations.Immutable;
+import org.autobet.util.GamesSnapshot;
+
+import java.util.Arrays;
+
+/**
+ * Goal based ratings of all games from the snapshot. Games are walked in played at order while a ring buffer
+ * of the last goal differences is kept for each team, so rating a game is a constant time operation.
+ * Games played at the same day are rated before any of them is added to the ring buffers,
+ * as only games played before given day are taken into account.
+ */
+@Immutable
+final class RollingGoalBasedRatings
+{
+    static final int NO_RATE = Integer.MIN_VALUE;
+
+    private final GamesSnapshot snapshot;
+    private final int[] rates;
+
+    RollingGoalBasedRatings(GamesSnapshot snapshot, int gamesCount)
+    {
+        this.snapshot = snapshot;
+        this.rates = new int[snapshot.getGamesCount()];
+
+        TeamWindows windows = new TeamWindows(snapshot.getMaxTeamId() + 1, gamesCount);
+        int[] games = orderByPlayedAt(snapshot);
+        int dayStart = 0;
+        while (dayStart < games.length) {
+            int day = snapshot.getPlayedAt(games[dayStart]);
+            int dayEnd = dayStart;
+            while (dayEnd < games.length && snapshot.getPlayedAt(games[dayEnd]) == day) {
+                dayEnd++;
+            }
+
+            for (int i = dayStart; i < dayEnd; i++) {
+                int game = games[i];
+                int homeTeamId = snapshot.getHomeTeamId(game);
+                int awayTeamId = snapshot.getAwayTeamId(game);
+                if (windows.isFull(homeTeamId) && windows.isFull(awayTeamId)) {
+                    rates[game] = windows.getSum(homeTeamId) - windows.getSum(awayTeamId);
+                }
+                else {
+                    rates[game] = NO_RATE;
+                }
+            }
+
+            for (int i = dayStart; i < dayEnd; i++) {
+                int game = games[i];
+                int goalDifference = goals(snapshot.getFullTimeHomeTeamGoals(game)) - goals(snapshot.getFullTimeAwayTeamGoals(game));
+                windows.add(snapshot.getHomeTeamId(game), goalDifference);
+                windows.add(snapshot.getAwayTeamId(game), -goalDifference);
+            }
+            dayStart = dayEnd;
+        }
+    }
+
+    private static int[] orderByPlayedAt(GamesSnapshot snapshot)
+    {
+        // sort by played at and then by game index, both packed into a single long
+        long[] keys = new long[snapshot.getGamesCount()];
+        for (int game = 0; game < keys.length; game++) {
+            keys[game] = ((long) snapshot.getPlayedAt(game) << 32) | game;
+        }
+        Arrays.sort(keys);
+        int[] games = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            games[i] = (int) keys[i];
+        }
+        return games;
+    }
+
+    private static int goals(byte goals)
+    {
+        // matches SQL sum semantics where missing goals are skipped
+        return goals == GamesSnapshot.NO_GOALS ? 0 : goals;
+    }
+
+    boolean isFor(GamesSnapshot snapshot)
+    {
+        return this.snapshot == snapshot;
+    }
+
+    /**
+     * @return difference between home and away team rates or {@link #NO_RATE} when any of the teams
+     * did not play enough games before
+     */
+    int getRate(int game)
+    {
+        return rates[game];
+    }
+
+    private static final class TeamWindows
+    {
+        private final int gamesCount;
+        // ring buffer of team t is stored at [t * gamesCount, (t + 1) * gamesCount)
+        private final int[] goalDifferences;
+        private final int[] sizes;
+        private final int[] positions;
+        private final int[] sums;
+
+        private TeamWindows(int teamsCount, int gamesCount)
+        {
+            this.gamesCount = gamesCount;
+            goalDifferences = new int[teamsCount * gamesCount];
+            sizes = new int[teamsCount];
+            positions = new int[teamsCount];
+            sums = new int[teamsCount];
+        }
+
+        private boolean isFull(int teamId)
+        {
+            return sizes[teamId] == gamesCount;
+        }
+
+        private int getSum(int teamId)
+        {
+            return sums[teamId];
+        }
+
+        private void add(int teamId, int goalDifference)
+        {
+            int slot = teamId * gamesCount + positions[teamId];
+            if (isFull(teamId)) {
+                sums[teamId] -= goalDifferences[slot];
+            }
+            else {
+                sizes[teamId]++;
+            }
+            goalDifferences[slot] = goalDifference;
+            sums[teamId] += goalDifference;
+            positions[teamId] = (positions[teamId] + 1) % gamesCount;
+        }
+    }
+}
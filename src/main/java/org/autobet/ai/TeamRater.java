@@ -16,6 +16,7 @@ package org.autobet.ai;
 
 import org.autobet.model.Game;
 import org.autobet.model.Team;
+import org.autobet.util.GamesSnapshot;
 import org.autobet.util.Named;
 
 import java.sql.Date;
@@ -25,6 +26,19 @@ public interface TeamRater extends Named
 {
     Optional<Integer> rate(Team team, Date date);
 
+    /**
+     * Rates the game using only the data from the snapshot.
+     */
+    Optional<Integer> rate(GamesSnapshot snapshot, int game);
+
+    /**
+     * Has to be changed whenever ratings of the same name would change, so stored ratings are not reused.
+     */
+    default int getVersion()
+    {
+        return 1;
+    }
+
     default Optional<Integer> rate(Game game)
     {
         Team homeTeam = Team.findById(game.getLong("home_team_id"));
@@ -19,18 +19,24 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
 import org.autobet.model.Game;
+import org.autobet.util.BinaryInput;
+import org.autobet.util.BinaryOutput;
 import org.autobet.util.GamesProcessorDriver;
+import org.autobet.util.GamesSnapshot;
 import org.autobet.util.KeyValueStore;
 
 import java.time.Duration;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static org.autobet.ImmutableCollectors.toImmutableList;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
 
 public class TeamRaterStatsCollector
 {
@@ -51,6 +57,23 @@ public class TeamRaterStatsCollector
         return gamesProcessorDriver.driveProcessors(() -> new GameProcessor(teamRater), gamesLimit, timeLimit);
     }
 
+    public TeamRaterStats collect(TeamRater teamRater, GamesSnapshot snapshot, Optional<Integer> gamesLimit, Optional<Duration> timeLimit)
+    {
+        return gamesProcessorDriver.driveProcessors(snapshot, () -> new GameProcessor(teamRater), gamesLimit, timeLimit);
+    }
+
+    /**
+     * Collects statistics of the first games only. They are stored apart from the other statistics of the rater,
+     * so they are computed once and then just loaded, unless any of these games changes.
+     */
+    public TeamRaterStats collectFirst(TeamRater teamRater, int gamesCount)
+    {
+        checkArgument(gamesCount > 0, "gamesCount has to be positive");
+        String storageKey = format("%s_v%d_first_%d", teamRater.getName(), teamRater.getVersion(), gamesCount);
+        long lastGame = Game.findLastId(0, Optional.of(gamesCount));
+        return gamesProcessorDriver.driveProcessorsUpTo(() -> new GameProcessor(teamRater, storageKey), lastGame, Optional.empty());
+    }
+
     private static class GameProcessor
             implements GamesProcessorDriver.GamesProcessor<TeamRaterStats>
     {
@@ -58,9 +81,14 @@ public class TeamRaterStatsCollector
         private final TeamRaterStats.Builder builder;
 
         public GameProcessor(TeamRater teamRater)
+        {
+            this(teamRater, teamRater.getName());
+        }
+
+        public GameProcessor(TeamRater teamRater, String storageKey)
         {
             this.teamRater = teamRater;
-            this.builder = TeamRaterStats.builder(teamRater.getName());
+            this.builder = TeamRaterStats.builder(storageKey);
         }
 
         @Override
@@ -73,20 +101,39 @@ public class TeamRaterStatsCollector
 
             Optional<Integer> rate = teamRater.rate(game);
             if (rate.isPresent()) {
-                switch (fullTimeResult) {
-                    case "H":
-                        builder.incrementHome(rate.get(), GameResult.WIN);
-                        break;
-                    case "D":
-                        builder.incrementHome(rate.get(), GameResult.DRAW);
-                        break;
-                    case "A":
-                        builder.incrementHome(rate.get(), GameResult.LOSE);
-                        break;
-
-                    default:
-                        throw new IllegalStateException("Unknown full time game result: " + fullTimeResult);
-                }
+                increment(rate.get(), fullTimeResult.charAt(0));
+            }
+        }
+
+        @Override
+        public void process(GamesSnapshot snapshot, int game)
+        {
+            byte fullTimeResult = snapshot.getFullTimeResult(game);
+            if (fullTimeResult == GamesSnapshot.NO_RESULT) {
+                return;
+            }
+
+            Optional<Integer> rate = teamRater.rate(snapshot, game);
+            if (rate.isPresent()) {
+                increment(rate.get(), (char) fullTimeResult);
+            }
+        }
+
+        private void increment(int rate, char fullTimeResult)
+        {
+            switch (fullTimeResult) {
+                case 'H':
+                    builder.incrementHome(rate, GameResult.WIN);
+                    break;
+                case 'D':
+                    builder.incrementHome(rate, GameResult.DRAW);
+                    break;
+                case 'A':
+                    builder.incrementHome(rate, GameResult.LOSE);
+                    break;
+
+                default:
+                    throw new IllegalStateException("Unknown full time game result: " + fullTimeResult);
             }
         }
 
@@ -97,11 +144,50 @@ public class TeamRaterStatsCollector
         }
     }
 
+    /**
+     * Counts of game results per rate, kept as a histogram of {@link GameResult#values()} counts per each rate
+     * from the observed range.
+     */
     public static class TeamRaterStats
             implements KeyValueStore.Storable<TeamRaterStats>
     {
-        private final Map<Integer, RateStats> homeStats;
+        private static final int RESULTS_COUNT = GameResult.values().length;
+
+        public static final KeyValueStore.Codec<TeamRaterStats> CODEC = new KeyValueStore.Codec<TeamRaterStats>()
+        {
+            @Override
+            public Class<TeamRaterStats> getType()
+            {
+                return TeamRaterStats.class;
+            }
+
+            @Override
+            public void encode(TeamRaterStats stats, BinaryOutput output)
+            {
+                output.writeString(stats.storageKey);
+                output.writeSignedVarint(stats.minRate);
+                output.writeVarint(stats.counts.length);
+                for (int count : stats.counts) {
+                    output.writeVarint(count);
+                }
+            }
+
+            @Override
+            public TeamRaterStats decode(BinaryInput input)
+            {
+                String storageKey = input.readString();
+                int minRate = input.readSignedIntVarint();
+                int[] counts = new int[input.readIntVarint()];
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = input.readIntVarint();
+                }
+                return new TeamRaterStats(storageKey, minRate, counts);
+            }
+        };
+
         private final String storageKey;
+        private final int minRate;
+        private final int[] counts;
 
         public static Builder builder(String storageKey)
         {
@@ -109,60 +195,98 @@ public class TeamRaterStatsCollector
         }
 
         @JsonCreator
-        private TeamRaterStats(
+        private static TeamRaterStats fromJson(
                 @JsonProperty("storageKey") String storageKey,
                 @JsonProperty("homeStats") Map<Integer, RateStats> homeStats)
         {
-            this.storageKey = storageKey;
-            this.homeStats = ImmutableMap.copyOf(homeStats);
+            Builder builder = builder(storageKey);
+            for (Map.Entry<Integer, RateStats> rateStats : homeStats.entrySet()) {
+                for (GameResult gameResult : GameResult.values()) {
+                    builder.addHome(rateStats.getKey(), gameResult, rateStats.getValue().get(gameResult));
+                }
+            }
+            return builder.build();
+        }
+
+        private TeamRaterStats(String storageKey, int minRate, int[] counts)
+        {
+            this.storageKey = requireNonNull(storageKey, "storageKey is null");
+            this.minRate = minRate;
+            this.counts = requireNonNull(counts, "counts is null");
         }
 
         public RateStats getHome(int rate)
         {
-            if (homeStats.containsKey(rate)) {
-                return homeStats.get(rate);
+            int offset = (rate - minRate) * RESULTS_COUNT;
+            if (offset < 0 || offset >= counts.length) {
+                return new RateStats(0, 0, 0);
             }
-            return new RateStats(ImmutableMap.of());
+            return new RateStats(
+                    counts[offset + GameResult.WIN.ordinal()],
+                    counts[offset + GameResult.DRAW.ordinal()],
+                    counts[offset + GameResult.LOSE.ordinal()]);
         }
 
         @JsonProperty("homeStats")
         public Map<Integer, RateStats> getHomeStats()
         {
-            return homeStats;
+            ImmutableSortedMap.Builder<Integer, RateStats> homeStats = ImmutableSortedMap.naturalOrder();
+            for (int rate : getRates()) {
+                homeStats.put(rate, getHome(rate));
+            }
+            return homeStats.build();
         }
 
+        /**
+         * @return sorted rates with at least one game
+         */
         @JsonIgnore
         public List<Integer> getRates()
         {
-            return homeStats.keySet()
-                    .stream()
-                    .sorted()
-                    .collect(toImmutableList());
+            ImmutableList.Builder<Integer> rates = ImmutableList.builder();
+            for (int offset = 0; offset < counts.length; offset += RESULTS_COUNT) {
+                if (counts[offset] + counts[offset + 1] + counts[offset + 2] > 0) {
+                    rates.add(minRate + offset / RESULTS_COUNT);
+                }
+            }
+            return rates.build();
         }
 
         @JsonIgnore
         public int getCount()
         {
-            return getRates().stream()
-                    .map(rate -> homeStats.get(rate).getCount())
-                    .reduce((x, y) -> x + y)
-                    .orElse(0);
+            int count = 0;
+            for (int value : counts) {
+                count += value;
+            }
+            return count;
         }
 
         @Override
         public TeamRaterStats merge(TeamRaterStats other)
         {
             checkArgument(storageKey.equals(other.getStorageKey()), "Storage keys are different");
-            TeamRaterStats.Builder builder = builder(storageKey);
+            if (other.counts.length == 0) {
+                return this;
+            }
+            if (counts.length == 0) {
+                return other;
+            }
+            int mergedMinRate = Math.min(minRate, other.minRate);
+            int mergedMaxRate = Math.max(getMaxRate(), other.getMaxRate());
+            int[] mergedCounts = new int[(mergedMaxRate - mergedMinRate + 1) * RESULTS_COUNT];
             for (TeamRaterStats stats : ImmutableList.of(this, other)) {
-                for (int rate : stats.homeStats.keySet()) {
-                    RateStats rateStats = stats.homeStats.get(rate);
-                    for (GameResult gameResult : GameResult.values()) {
-                        builder.addHome(rate, gameResult, rateStats.get(gameResult));
-                    }
+                int shift = (stats.minRate - mergedMinRate) * RESULTS_COUNT;
+                for (int i = 0; i < stats.counts.length; i++) {
+                    mergedCounts[shift + i] += stats.counts[i];
                 }
             }
-            return builder.build();
+            return new TeamRaterStats(storageKey, mergedMinRate, mergedCounts);
+        }
+
+        private int getMaxRate()
+        {
+            return minRate + counts.length / RESULTS_COUNT - 1;
         }
 
         @JsonProperty("storageKey")
@@ -172,10 +296,20 @@ public class TeamRaterStatsCollector
             return storageKey;
         }
 
+        @JsonIgnore
+        @Override
+        public KeyValueStore.Codec<TeamRaterStats> getCodec()
+        {
+            return CODEC;
+        }
+
         public static class Builder
         {
-            private final Map<Integer, RateStats> homeStats = new HashMap<>();
+            private static final int INITIAL_RATES_COUNT = 32;
+
             private final String storageKey;
+            private int minRate;
+            private int[] counts = new int[0];
 
             public Builder(String storageKey)
             {
@@ -189,97 +323,140 @@ public class TeamRaterStatsCollector
 
             public Builder addHome(int rate, GameResult gameResult, int count)
             {
-                RateStats value = RateStats.builder().add(gameResult, count).build();
-                homeStats.merge(rate, value, RateStats::merge);
+                ensureCapacity(rate);
+                counts[(rate - minRate) * RESULTS_COUNT + gameResult.ordinal()] += count;
                 return this;
             }
 
+            private void ensureCapacity(int rate)
+            {
+                int ratesCount = counts.length / RESULTS_COUNT;
+                if (ratesCount == 0) {
+                    minRate = rate - INITIAL_RATES_COUNT / 2;
+                    counts = new int[INITIAL_RATES_COUNT * RESULTS_COUNT];
+                    return;
+                }
+                int maxRate = minRate + ratesCount - 1;
+                if (rate >= minRate && rate <= maxRate) {
+                    return;
+                }
+                // grow at least twice towards the rate, so growing is amortized
+                int newRatesCount = Math.max(Math.max(maxRate, rate) - Math.min(minRate, rate) + 1, ratesCount * 2);
+                int newMinRate = rate < minRate ? maxRate - newRatesCount + 1 : minRate;
+                int[] newCounts = new int[newRatesCount * RESULTS_COUNT];
+                System.arraycopy(counts, 0, newCounts, (minRate - newMinRate) * RESULTS_COUNT, counts.length);
+                minRate = newMinRate;
+                counts = newCounts;
+            }
+
             public TeamRaterStats build()
             {
-                return new TeamRaterStats(storageKey, homeStats);
+                int first = 0;
+                while (first < counts.length && isEmpty(first)) {
+                    first += RESULTS_COUNT;
+                }
+                int end = counts.length;
+                while (end > first && isEmpty(end - RESULTS_COUNT)) {
+                    end -= RESULTS_COUNT;
+                }
+                return new TeamRaterStats(storageKey, minRate + first / RESULTS_COUNT, Arrays.copyOfRange(counts, first, end));
+            }
+
+            private boolean isEmpty(int offset)
+            {
+                return counts[offset] == 0 && counts[offset + 1] == 0 && counts[offset + 2] == 0;
             }
         }
     }
 
     public static class RateStats
     {
-        public static Builder builder()
-        {
-            return new Builder();
-        }
-
-        private final Map<GameResult, Integer> stats;
+        private final int wins;
+        private final int draws;
+        private final int loses;
 
         @JsonCreator
         public RateStats(@JsonProperty("stats") Map<GameResult, Integer> stats)
         {
-            this.stats = ImmutableMap.copyOf(stats);
+            this(stats.getOrDefault(GameResult.WIN, 0), stats.getOrDefault(GameResult.DRAW, 0), stats.getOrDefault(GameResult.LOSE, 0));
+        }
+
+        public RateStats(int wins, int draws, int loses)
+        {
+            this.wins = wins;
+            this.draws = draws;
+            this.loses = loses;
         }
 
         @JsonIgnore
         public int getCount()
         {
-            return stats.values().stream()
-                    .reduce((x, y) -> x + y)
-                    .orElse(0);
+            return wins + draws + loses;
         }
 
         @JsonIgnore
         public int getWins()
         {
-            return get(GameResult.WIN);
+            return wins;
         }
 
         @JsonIgnore
         public int getDraws()
         {
-            return get(GameResult.DRAW);
+            return draws;
         }
 
         @JsonIgnore
         public int getLoses()
         {
-            return get(GameResult.LOSE);
+            return loses;
         }
 
         @JsonIgnore
         public int get(GameResult gameResult)
         {
-            Integer gameResultStats = stats.get(gameResult);
-            return gameResultStats == null ? 0 : gameResultStats;
+            switch (gameResult) {
+                case WIN:
+                    return wins;
+                case DRAW:
+                    return draws;
+                case LOSE:
+                    return loses;
+                default:
+                    throw new IllegalArgumentException("Unknown game result: " + gameResult);
+            }
         }
 
         public RateStats merge(RateStats other)
         {
-            Builder builder = builder();
-            for (RateStats rateStats : ImmutableList.of(this, other)) {
-                for (GameResult gameResult : GameResult.values()) {
-                    builder.add(gameResult, rateStats.get(gameResult));
-                }
-            }
-            return builder.build();
+            return new RateStats(wins + other.wins, draws + other.draws, loses + other.loses);
         }
 
         @JsonProperty("stats")
         public Map<GameResult, Integer> getStats()
         {
-            return stats;
+            return ImmutableMap.of(GameResult.WIN, wins, GameResult.DRAW, draws, GameResult.LOSE, loses);
         }
 
-        public static class Builder
+        @Override
+        public boolean equals(Object o)
         {
-            private Map<GameResult, Integer> stats = new HashMap<>();
-
-            private Builder add(GameResult result, int count)
-            {
-                stats.merge(result, count, (left, right) -> left + right);
-                return this;
+            if (this == o) {
+                return true;
             }
-
-            public RateStats build()
-            {
-                return new RateStats(stats);
+            if (o == null || getClass() != o.getClass()) {
+                return false;
             }
+            RateStats rateStats = (RateStats) o;
+            return wins == rateStats.wins &&
+                    draws == rateStats.draws &&
+                    loses == rateStats.loses;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(wins, draws, loses);
         }
     }
 }
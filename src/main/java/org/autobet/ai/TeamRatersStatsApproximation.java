@@ -24,26 +24,63 @@ import org.autobet.math.Polynomial;
 import java.util.List;
 import java.util.Map;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.autobet.ai.TeamRaterStatsCollector.GameResult.DRAW;
 import static org.autobet.ai.TeamRaterStatsCollector.GameResult.LOSE;
 import static org.autobet.ai.TeamRaterStatsCollector.GameResult.WIN;
 
+/**
+ * Approximates chances of game results with polynomials fitted to the observed rates. Chances for the observed
+ * range of rates are computed upfront into a table, so only rates out of that range are calculated on demand.
+ */
 public class TeamRatersStatsApproximation
 {
-    private static final PolynomialCurveFitter fitter = PolynomialCurveFitter.create(1);
+    public static final int DEFAULT_DEGREE = 1;
+
+    private static final int RESULTS_COUNT = GameResult.values().length;
+    private static final int MAX_TABLE_RATES = 10_000;
 
     private final Polynomial homeWinChances;
     private final Polynomial homeLoseChances;
     private final Polynomial drawChances;
 
+    private final int minRate;
+    // chances of all the game results per each rate from the observed range
+    private final double[] chances;
+
     public TeamRatersStatsApproximation(TeamRaterStats teamRaterStats)
     {
-        homeWinChances = approximate(teamRaterStats, WIN);
-        homeLoseChances = approximate(teamRaterStats, LOSE);
-        drawChances = approximate(teamRaterStats, DRAW);
+        this(teamRaterStats, DEFAULT_DEGREE);
+    }
+
+    /**
+     * @param degree degree of polynomials fitted to the chances of each game result
+     */
+    public TeamRatersStatsApproximation(TeamRaterStats teamRaterStats, int degree)
+    {
+        checkArgument(degree >= 0, "degree has to be non negative");
+        PolynomialCurveFitter fitter = PolynomialCurveFitter.create(degree);
+        homeWinChances = approximate(fitter, teamRaterStats, WIN);
+        homeLoseChances = approximate(fitter, teamRaterStats, LOSE);
+        drawChances = approximate(fitter, teamRaterStats, DRAW);
+
+        List<Integer> rates = teamRaterStats.getRates();
+        if (rates.isEmpty() || rates.get(rates.size() - 1) - rates.get(0) >= MAX_TABLE_RATES) {
+            minRate = 0;
+            chances = new double[0];
+            return;
+        }
+        minRate = rates.get(0);
+        chances = new double[(rates.get(rates.size() - 1) - minRate + 1) * RESULTS_COUNT];
+        for (int offset = 0; offset < chances.length; offset += RESULTS_COUNT) {
+            int rate = minRate + offset / RESULTS_COUNT;
+            chances[offset + WIN.ordinal()] = cap(homeWinChances.calculate(rate));
+            chances[offset + DRAW.ordinal()] = cap(drawChances.calculate(rate));
+            chances[offset + LOSE.ordinal()] = cap(homeLoseChances.calculate(rate));
+        }
     }
 
-    private Polynomial approximate(TeamRaterStats teamRaterStats, GameResult gameResult)
+    private static Polynomial approximate(PolynomialCurveFitter fitter, TeamRaterStats teamRaterStats, GameResult gameResult)
     {
         Map<Integer, RateStats> stats = teamRaterStats.getHomeStats();
         List<Integer> rates = teamRaterStats.getRates();
@@ -60,17 +97,26 @@ public class TeamRatersStatsApproximation
 
     public double getHomeWinChances(int rate)
     {
-        return cap(homeWinChances.calculate(rate));
+        return getChances(rate, WIN, homeWinChances);
     }
 
     public double getHomeLoseChances(int rate)
     {
-        return cap(homeLoseChances.calculate(rate));
+        return getChances(rate, LOSE, homeLoseChances);
     }
 
     public double getDrawChances(int rate)
     {
-        return cap(drawChances.calculate(rate));
+        return getChances(rate, DRAW, drawChances);
+    }
+
+    private double getChances(int rate, GameResult gameResult, Polynomial polynomial)
+    {
+        int offset = (rate - minRate) * RESULTS_COUNT;
+        if (offset >= 0 && offset < chances.length) {
+            return chances[offset + gameResult.ordinal()];
+        }
+        return cap(polynomial.calculate(rate));
     }
 
     private double cap(double value)
@@ -18,11 +18,13 @@ import dagger.Module;
 import dagger.Provides;
 import dagger.multibindings.ElementsIntoSet;
 import dagger.multibindings.IntoSet;
+import org.autobet.ai.CachingTeamRater;
 import org.autobet.ai.ChancesApproximationBasedPlayer;
 import org.autobet.ai.GoalBasedTeamRater;
 import org.autobet.ai.LowBetPlayer;
 import org.autobet.ai.Player;
 import org.autobet.ai.PlayerEvaluator;
+import org.autobet.ai.PlayerTuner;
 import org.autobet.ai.RandomPlayer;
 import org.autobet.ai.TeamRater;
 import org.autobet.ai.TeamRaterStatsCollector;
@@ -32,7 +34,6 @@ import org.autobet.util.GamesProcessorDriver;
 import javax.inject.Inject;
 import javax.sql.DataSource;
 
-import java.util.Optional;
 import java.util.Set;
 
 import static org.autobet.ImmutableCollectors.toImmutableSet;
@@ -40,6 +41,23 @@ import static org.autobet.ImmutableCollectors.toImmutableSet;
 @Module
 public class AIModule
 {
+    private static final int TRAINING_GAMES = 100;
+
+    private final boolean cacheRatings;
+
+    public AIModule()
+    {
+        this(false);
+    }
+
+    /**
+     * @param cacheRatings whether ratings of the database games are stored, so the following runs reuse them
+     */
+    public AIModule(boolean cacheRatings)
+    {
+        this.cacheRatings = cacheRatings;
+    }
+
     @Provides
     @Inject
     public GamesProcessorDriver provideDriver(DataSource dataSource)
@@ -61,6 +79,13 @@ public class AIModule
         return new PlayerEvaluator(driver);
     }
 
+    @Provides
+    @Inject
+    public PlayerTuner providePlayerTuner(TeamRaterStatsCollector statsCollector, PlayerEvaluator playerEvaluator)
+    {
+        return new PlayerTuner(statsCollector, playerEvaluator);
+    }
+
     @Provides
     @IntoSet
     public Player provideRandomPlayer()
@@ -80,15 +105,13 @@ public class AIModule
     @Inject
     public Set<Player> provideChancesBasedPlayers(TeamRaterStatsCollector statsCollector, Set<TeamRater> teamRaters)
     {
+        // stats are collected up front, collecting them from within the evaluation would run
+        // a nested games processing on a worker thread, while the other workers wait for it, they
+        // are stored, so only the first run collects them
         return teamRaters.stream()
                 .map(teamRater -> {
-                    //TODO: do not collect stats here
-                    TeamRaterStatsCollector.TeamRaterStats stats = statsCollector.collect(
-                            teamRater,
-                            Optional.of(100),
-                            Optional.empty());
-                    TeamRatersStatsApproximation approximation = new TeamRatersStatsApproximation(stats);
-                    return new ChancesApproximationBasedPlayer(approximation, teamRater);
+                    TeamRaterStatsCollector.TeamRaterStats stats = statsCollector.collectFirst(teamRater, TRAINING_GAMES);
+                    return new ChancesApproximationBasedPlayer(new TeamRatersStatsApproximation(stats), teamRater);
                 })
                 .collect(toImmutableSet());
     }
@@ -97,6 +120,9 @@ public class AIModule
     @IntoSet
     public TeamRater provideGoalBasedRater()
     {
-        return new GoalBasedTeamRater();
+        TeamRater teamRater = new GoalBasedTeamRater();
+        // storing ratings makes the first run much slower, it pays off only for runs repeated over the same
+        // games, see BenchmarkDatabaseTeamRater
+        return cacheRatings ? new CachingTeamRater(teamRater) : teamRater;
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.ioc;
+
+import com.zaxxer.hikari.metrics.MetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import net.jcip.annotations.ThreadSafe;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/**
+ * Collects how long connections are awaited and exposes the current state of the connection pool.
+ */
+@ThreadSafe
+public class ConnectionPoolMetrics
+        implements MetricsTrackerFactory
+{
+    private final LongAdder acquiredCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final LongAdder timeoutsCount = new LongAdder();
+    private volatile PoolStats poolStats;
+
+    @Override
+    public MetricsTracker create(String poolName, PoolStats poolStats)
+    {
+        this.poolStats = poolStats;
+        return new MetricsTracker()
+        {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos)
+            {
+                acquiredCount.increment();
+                acquireNanos.add(elapsedAcquiredNanos);
+                maxAcquireNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+            }
+
+            @Override
+            public void recordConnectionTimeout()
+            {
+                timeoutsCount.increment();
+            }
+        };
+    }
+
+    public long getAcquiredCount()
+    {
+        return acquiredCount.sum();
+    }
+
+    public Duration getAverageWait()
+    {
+        long count = acquiredCount.sum();
+        return Duration.ofNanos(count == 0 ? 0 : acquireNanos.sum() / count);
+    }
+
+    public Duration getMaxWait()
+    {
+        return Duration.ofNanos(maxAcquireNanos.get());
+    }
+
+    public long getTimeoutsCount()
+    {
+        return timeoutsCount.sum();
+    }
+
+    public int getActiveConnections()
+    {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getActiveConnections();
+    }
+
+    public int getTotalConnections()
+    {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getTotalConnections();
+    }
+
+    public int getPendingThreads()
+    {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getPendingThreads();
+    }
+
+    @Override
+    public String toString()
+    {
+        return format(
+                "connections active: %d, total: %d, awaited by: %d threads; acquired %d times, wait avg: %.3fms, max: %.3fms, timeouts: %d",
+                getActiveConnections(),
+                getTotalConnections(),
+                getPendingThreads(),
+                getAcquiredCount(),
+                getAverageWait().toNanos() / 1e6,
+                getMaxWait().toNanos() / 1e6,
+                getTimeoutsCount());
+    }
+}
@@ -12,41 +12,58 @@
  * limitations under the License.
  */
 
-/*
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
 package org.autobet.ioc;
 
-import com.mysql.jdbc.jdbc2.optional.MysqlDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import dagger.Module;
 import dagger.Provides;
 
 import javax.inject.Singleton;
 import javax.sql.DataSource;
 
+import static java.util.Objects.requireNonNull;
+
 @Module
 public class DataSourceModule
 {
+    private final DatabaseConfig config;
+    private final ConnectionPoolMetrics poolMetrics = new ConnectionPoolMetrics();
+
+    public DataSourceModule()
+    {
+        this(DatabaseConfig.defaults());
+    }
+
+    public DataSourceModule(DatabaseConfig config)
+    {
+        this.config = requireNonNull(config, "config is null");
+    }
+
     @Singleton
     @Provides
     public DataSource provideDataSource()
     {
-        // TODO make below configuration to be configurable
-        MysqlDataSource dataSource = new MysqlDataSource();
-        dataSource.setURL("jdbc:mysql://localhost:13306/autobet");
-        dataSource.setUser("root");
-        dataSource.setPassword("mysql");
-        return dataSource;
+        HikariConfig poolConfig = new HikariConfig();
+        poolConfig.setPoolName("autobet");
+        poolConfig.setJdbcUrl(config.getUrl());
+        poolConfig.setUsername(config.getUser());
+        poolConfig.setPassword(config.getPassword());
+        poolConfig.setDataSourceProperties(config.getDriverProperties());
+        poolConfig.setMaximumPoolSize(config.getPoolSize());
+        poolConfig.setMetricsTrackerFactory(poolMetrics);
+        return new HikariDataSource(poolConfig);
+    }
+
+    @Provides
+    public DatabaseConfig provideDatabaseConfig()
+    {
+        return config;
+    }
+
+    @Provides
+    public ConnectionPoolMetrics providePoolMetrics()
+    {
+        return poolMetrics;
     }
 }
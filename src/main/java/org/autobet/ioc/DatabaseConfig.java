@@ -0,0 +1,214 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.ioc;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static org.autobet.ImmutableCollectors.toImmutableSet;
+
+/**
+ * Database connection settings. Defaults are overridden by a properties file, then by environment variables
+ * (property name in upper case, prefixed with {@code AUTOBET_}, with dots and dashes replaced by underscores,
+ * e.g. {@code AUTOBET_DB_POOL_SIZE}) and finally by explicit overrides, usually given in the command line.
+ */
+public class DatabaseConfig
+{
+    public static final String URL = "db.url";
+    public static final String USER = "db.user";
+    public static final String PASSWORD = "db.password";
+    public static final String POOL_SIZE = "db.pool-size";
+    public static final String REWRITE_BATCHED_STATEMENTS = "db.rewrite-batched-statements";
+    public static final String USE_SERVER_PREPARED_STATEMENTS = "db.use-server-prepared-statements";
+    public static final String CACHE_PREPARED_STATEMENTS = "db.cache-prepared-statements";
+    public static final String USE_CURSOR_FETCH = "db.use-cursor-fetch";
+    public static final String DEFAULT_FETCH_SIZE = "db.default-fetch-size";
+
+    private static final String ENVIRONMENT_PREFIX = "AUTOBET_";
+
+    /**
+     * Enough for a connection per each games processing worker or parallel loading writer, plus
+     * the main connection and the one used to register teams during parallel loading.
+     */
+    private static final int DEFAULT_POOL_SIZE = Math.max(Runtime.getRuntime().availableProcessors(), 4) + 2;
+
+    private static final Map<String, String> DEFAULTS = ImmutableMap.<String, String>builder()
+            .put(URL, "jdbc:mysql://localhost:13306/autobet")
+            .put(USER, "root")
+            .put(PASSWORD, "mysql")
+            .put(POOL_SIZE, String.valueOf(DEFAULT_POOL_SIZE))
+            // batched inserts of loaders are sent as multi row inserts, applies to client side prepared statements only,
+            // so neither server side prepared statements nor cursor fetch, which implies them, can be used
+            .put(REWRITE_BATCHED_STATEMENTS, "true")
+            .put(USE_SERVER_PREPARED_STATEMENTS, "false")
+            // client side prepared statements are parsed once per pooled connection
+            .put(CACHE_PREPARED_STATEMENTS, "true")
+            // games are streamed in bounded id ranges, which are small enough to be fetched whole
+            .put(USE_CURSOR_FETCH, "false")
+            // 0 fetches whole results, unless fetch size is set for a statement
+            .put(DEFAULT_FETCH_SIZE, "0")
+            .build();
+
+    private final Map<String, String> properties;
+
+    public static DatabaseConfig defaults()
+    {
+        return new DatabaseConfig(DEFAULTS);
+    }
+
+    /**
+     * In memory H2 database in MySQL compatibility mode, which lives until it is shut down.
+     */
+    public static DatabaseConfig embedded(String databaseName)
+    {
+        Map<String, String> properties = new HashMap<>(DEFAULTS);
+        properties.put(URL, "jdbc:h2:mem:" + databaseName + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put(USER, "sa");
+        properties.put(PASSWORD, "");
+        return new DatabaseConfig(properties);
+    }
+
+    public static DatabaseConfig load(Optional<String> configFile, Map<String, String> environment, Map<String, String> overrides)
+    {
+        Map<String, String> properties = new HashMap<>(DEFAULTS);
+        if (configFile.isPresent()) {
+            properties.putAll(checkKnown(readProperties(configFile.get()), configFile.get()));
+        }
+        for (String name : DEFAULTS.keySet()) {
+            String value = environment.get(toEnvironmentVariable(name));
+            if (value != null) {
+                properties.put(name, value);
+            }
+        }
+        properties.putAll(checkKnown(overrides, "overrides"));
+        return new DatabaseConfig(properties);
+    }
+
+    static String toEnvironmentVariable(String name)
+    {
+        return ENVIRONMENT_PREFIX + name.toUpperCase().replace('.', '_').replace('-', '_');
+    }
+
+    private static Map<String, String> readProperties(String configFile)
+    {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(configFile)) {
+            properties.load(input);
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        ImmutableMap.Builder<String, String> result = ImmutableMap.builder();
+        for (String name : properties.stringPropertyNames()) {
+            result.put(name, properties.getProperty(name).trim());
+        }
+        return result.build();
+    }
+
+    private static Map<String, String> checkKnown(Map<String, String> properties, String source)
+    {
+        Set<String> unknown = properties.keySet().stream()
+                .filter(name -> !DEFAULTS.containsKey(name))
+                .collect(toImmutableSet());
+        checkArgument(unknown.isEmpty(), "Unknown database properties in %s: %s", source, unknown);
+        return properties;
+    }
+
+    private DatabaseConfig(Map<String, String> properties)
+    {
+        this.properties = ImmutableMap.copyOf(requireNonNull(properties, "properties is null"));
+    }
+
+    public String getUrl()
+    {
+        return properties.get(URL);
+    }
+
+    public String getUser()
+    {
+        return properties.get(USER);
+    }
+
+    public String getPassword()
+    {
+        return properties.get(PASSWORD);
+    }
+
+    public int getPoolSize()
+    {
+        int poolSize = getInt(POOL_SIZE);
+        checkArgument(poolSize > 0, "%s has to be positive: %s", POOL_SIZE, poolSize);
+        return poolSize;
+    }
+
+    public boolean isMySql()
+    {
+        return getUrl().startsWith("jdbc:mysql:");
+    }
+
+    /**
+     * @return properties passed to the JDBC driver, MySQL specific settings are ignored for other databases
+     */
+    public Properties getDriverProperties()
+    {
+        Properties driverProperties = new Properties();
+        if (!isMySql()) {
+            return driverProperties;
+        }
+        checkArgument(
+                !getBoolean(REWRITE_BATCHED_STATEMENTS) || !(getBoolean(USE_SERVER_PREPARED_STATEMENTS) || getBoolean(USE_CURSOR_FETCH)),
+                "%s requires client side prepared statements, disable %s and %s or disable it",
+                REWRITE_BATCHED_STATEMENTS,
+                USE_SERVER_PREPARED_STATEMENTS,
+                USE_CURSOR_FETCH);
+        driverProperties.setProperty("rewriteBatchedStatements", String.valueOf(getBoolean(REWRITE_BATCHED_STATEMENTS)));
+        driverProperties.setProperty("useServerPrepStmts", String.valueOf(getBoolean(USE_SERVER_PREPARED_STATEMENTS)));
+        driverProperties.setProperty("cachePrepStmts", String.valueOf(getBoolean(CACHE_PREPARED_STATEMENTS)));
+        driverProperties.setProperty("prepStmtCacheSize", "250");
+        driverProperties.setProperty("prepStmtCacheSqlLimit", "2048");
+        driverProperties.setProperty("useCursorFetch", String.valueOf(getBoolean(USE_CURSOR_FETCH)));
+        driverProperties.setProperty("defaultFetchSize", String.valueOf(getInt(DEFAULT_FETCH_SIZE)));
+        return driverProperties;
+    }
+
+    private int getInt(String name)
+    {
+        String value = properties.get(name);
+        try {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of " + name + ": " + value, e);
+        }
+    }
+
+    private boolean getBoolean(String name)
+    {
+        String value = properties.get(name);
+        checkArgument(value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false"), "Invalid value of %s: %s", name, value);
+        return Boolean.parseBoolean(value);
+    }
+}
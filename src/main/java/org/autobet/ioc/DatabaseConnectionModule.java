@@ -16,8 +16,11 @@ package org.autobet.ioc;
 
 import dagger.Module;
 import dagger.Provides;
+import org.autobet.util.KeyValueStore;
 import org.flywaydb.core.Flyway;
 import org.javalite.activejdbc.Base;
+import org.javalite.activejdbc.cache.CacheEvent;
+import org.javalite.activejdbc.cache.QueryCache;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -43,6 +46,9 @@ public class DatabaseConnectionModule
             flyway.setDataSource(dataSource);
             flyway.migrate();
             Base.open(dataSource);
+            // cached models and values could come from another database used earlier in the same process
+            QueryCache.instance().getCacheManager().flush(CacheEvent.ALL);
+            KeyValueStore.invalidateCache();
         }
 
         @Override
@@ -17,6 +17,7 @@ package org.autobet.ioc;
 import dagger.Component;
 import org.autobet.ai.Player;
 import org.autobet.ai.PlayerEvaluator;
+import org.autobet.ai.PlayerTuner;
 import org.autobet.ai.TeamRater;
 import org.autobet.ai.TeamRaterStatsCollector;
 
@@ -36,6 +37,10 @@ public interface MainComponent
 
     DataSource getDataSource();
 
+    DatabaseConfig getDatabaseConfig();
+
+    ConnectionPoolMetrics getPoolMetrics();
+
     Set<Player> getPlayers();
 
     default Map<String, Player> getPlayersMap()
@@ -55,4 +60,6 @@ public interface MainComponent
     PlayerEvaluator getPlayerEvaluator();
 
     TeamRaterStatsCollector getStatsCollector();
+
+    PlayerTuner getPlayerTuner();
 }
@@ -27,12 +27,14 @@ public class Polynomial
         this.coefficients = requireNonNull(coefficients, "coefficients is null");
     }
 
+    /**
+     * Evaluates the polynomial with Horner's method, coefficients are ordered from the constant term.
+     */
     public double calculate(double x)
     {
-        double result = coefficients[0];
-        for (int i = 1; i < coefficients.length; i++) {
-            result += x * coefficients[i];
-            x *= x;
+        double result = coefficients[coefficients.length - 1];
+        for (int i = coefficients.length - 2; i >= 0; i--) {
+            result = result * x + coefficients[i];
         }
         return result;
     }
@@ -20,14 +20,33 @@ import org.javalite.activejdbc.annotations.Table;
 public class Bet
         extends Model
 {
+    /**
+     * Scale of the odds column.
+     */
+    public static final int ODDS_SCALE = 4;
+
+    /**
+     * Placeholder of odds bound as unscaled values of {@link #ODDS_SCALE}, multiplying by a decimal keeps them exact.
+     */
+    public static final String UNSCALED_ODDS_PLACEHOLDER = "? * 0.0001";
+
     public BetType getBetType()
     {
         return BetType.findById(getLong("bet_type_id"));
     }
 
+    /**
+     * @return full time result ('H', 'D' or 'A') for which bet is winning
+     */
+    public char getResult()
+    {
+        return BetType.getResult(getInteger("bet_type_id"));
+    }
+
     public boolean isWinning(Game game)
     {
-        return getBetType().getString("bet_suffix").equalsIgnoreCase(game.getString("full_time_result"));
+        String fullTimeResult = game.getString("full_time_result");
+        return fullTimeResult != null && fullTimeResult.length() == 1 && fullTimeResult.charAt(0) == getResult();
     }
 
     public double getOdds() {
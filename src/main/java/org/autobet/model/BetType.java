@@ -16,10 +16,43 @@ package org.autobet.model;
 import org.javalite.activejdbc.Model;
 import org.javalite.activejdbc.annotations.Cached;
 
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
 @Cached
 public class BetType
         extends Model
 {
+    // bet suffixes indexed by bet type id, bet types are never changed so they are loaded only once
+    private static volatile char[] results;
+
+    /**
+     * @return full time result ('H', 'D' or 'A') for which bets of given type are winning
+     */
+    public static char getResult(int betTypeId)
+    {
+        char[] results = BetType.results;
+        if (results == null) {
+            results = loadResults();
+        }
+        checkArgument(betTypeId < results.length && results[betTypeId] != 0, "Unknown bet type: %s", betTypeId);
+        return results[betTypeId];
+    }
+
+    private static synchronized char[] loadResults()
+    {
+        if (results == null) {
+            List<BetType> betTypes = BetType.findAll();
+            char[] newResults = new char[betTypes.stream().mapToInt(betType -> betType.getInteger("id")).max().orElse(0) + 1];
+            for (BetType betType : betTypes) {
+                newResults[betType.getInteger("id")] = betType.getString("bet_suffix").toUpperCase().charAt(0);
+            }
+            results = newResults;
+        }
+        return results;
+    }
+
     public boolean isFullTimeHomeWin()
     {
         return getString("name").equalsIgnoreCase("full_time_home_win");
@@ -14,24 +14,167 @@
 
 package org.autobet.model;
 
-import org.javalite.activejdbc.LazyList;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import org.autobet.CloseableIterator;
+import org.javalite.activejdbc.Base;
 import org.javalite.activejdbc.Model;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 public class Game
         extends Model
 {
-    public static LazyList<Game> findAll(int startGame, Optional<Integer> limit)
+    private static final int FETCH_SIZE = 1000;
+
+    private List<Bet> bets;
+
+    /**
+     * @return id of the last game to be processed when starting after the given game id,
+     * or the given game id itself if there are no such games
+     */
+    public static long findLastId(long startGame, Optional<Integer> limit)
     {
+        Object lastId;
         if (limit.isPresent()) {
-            return Game.findBySQL("SELECT * FROM games WHERE id > ? ORDER BY id LIMIT ?", startGame, limit.get());
+            checkArgument(limit.get() >= 0, "Limit must not be negative");
+            if (limit.get() == 0) {
+                return startGame;
+            }
+            lastId = Base.firstCell("SELECT id FROM games WHERE id > ? ORDER BY id LIMIT 1 OFFSET ?", startGame, limit.get() - 1);
+            if (lastId != null) {
+                return ((Number) lastId).longValue();
+            }
+        }
+        lastId = Base.firstCell("SELECT max(id) FROM games WHERE id > ?", startGame);
+        if (lastId == null) {
+            return startGame;
+        }
+        return ((Number) lastId).longValue();
+    }
+
+    /**
+     * Streams games ordered by id through a forward only, read only cursor. With cursor fetch enabled
+     * only {@link #FETCH_SIZE} rows are held in memory at once, otherwise the whole range is fetched.
+     * Returned iterator has to be closed before the connection is released.
+     */
+    public static CloseableIterator<Game> streamByIdRange(long firstId, long lastId)
+    {
+        try {
+            PreparedStatement statement = Base.connection().prepareStatement(
+                    "SELECT * FROM games WHERE id BETWEEN ? AND ? ORDER BY id",
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            try {
+                statement.setFetchSize(FETCH_SIZE);
+                statement.setLong(1, firstId);
+                statement.setLong(2, lastId);
+                return new GameCursor(statement, statement.executeQuery());
+            }
+            catch (SQLException | RuntimeException e) {
+                statement.close();
+                throw e;
+            }
+        }
+        catch (SQLException e) {
+            throw Throwables.propagate(e);
         }
-        return Game.findBySQL("SELECT * FROM games WHERE id > ? ORDER BY id", startGame);
     }
 
-    public List<Bet> getBets() {
+    /**
+     * Fetches bets of all the games with a single range query, so {@link #getBets()} does not need to query them.
+     *
+     * @param games games ordered by id
+     */
+    public static void fetchBets(List<Game> games)
+    {
+        if (games.isEmpty()) {
+            return;
+        }
+        long firstGameId = games.get(0).getLongId();
+        long lastGameId = games.get(games.size() - 1).getLongId();
+        checkArgument(firstGameId <= lastGameId, "Games are not ordered by id");
+
+        Map<Long, List<Bet>> bets = new HashMap<>();
+        for (Bet bet : Bet.<Bet>find("game_id BETWEEN ? AND ? ORDER BY id", firstGameId, lastGameId)) {
+            bets.computeIfAbsent(bet.getLong("game_id"), gameId -> new ArrayList<>()).add(bet);
+        }
+        for (Game game : games) {
+            game.bets = bets.getOrDefault(game.getLongId(), ImmutableList.of());
+        }
+    }
+
+    public List<Bet> getBets()
+    {
+        if (bets != null) {
+            return bets;
+        }
         return Bet.find("game_id = ? ", getId());
     }
+
+    private static class GameCursor
+            extends AbstractIterator<Game>
+            implements CloseableIterator<Game>
+    {
+        private final PreparedStatement statement;
+        private final ResultSet resultSet;
+        private final List<String> columns;
+
+        private GameCursor(PreparedStatement statement, ResultSet resultSet)
+                throws SQLException
+        {
+            this.statement = statement;
+            this.resultSet = resultSet;
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            ImmutableList.Builder<String> columns = ImmutableList.builder();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnLabel(i).toLowerCase());
+            }
+            this.columns = columns.build();
+        }
+
+        @Override
+        protected Game computeNext()
+        {
+            try {
+                if (!resultSet.next()) {
+                    close();
+                    return endOfData();
+                }
+                Map<String, Object> row = new HashMap<>();
+                for (int i = 0; i < columns.size(); i++) {
+                    row.put(columns.get(i), resultSet.getObject(i + 1));
+                }
+                Game game = new Game();
+                game.hydrate(row, true);
+                return game;
+            }
+            catch (SQLException e) {
+                close();
+                throw Throwables.propagate(e);
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            try {
+                statement.close();
+            }
+            catch (SQLException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.model;
+
+import com.google.common.base.Throwables;
+import org.javalite.activejdbc.Base;
+import org.javalite.activejdbc.Model;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.autobet.ImmutableCollectors.toImmutableList;
+
+/**
+ * Feed of games which were updated. Consumers which cache results computed from games remember the id of
+ * the last change they have seen, so later they can find out which of the games have changed since. Added
+ * games are not recorded, their ids are greater than of any game seen before.
+ */
+public class GameChange
+        extends Model
+{
+    public static void record(Collection<Long> gameIds)
+    {
+        if (gameIds.isEmpty()) {
+            return;
+        }
+        Timestamp changedAt = new Timestamp(System.currentTimeMillis());
+        PreparedStatement preparedStatement = Base.startBatch("INSERT INTO game_changes(game_id, changed_at) VALUES (?, ?)");
+        for (long gameId : gameIds) {
+            Base.addBatch(preparedStatement, gameId, changedAt);
+        }
+        Base.executeBatch(preparedStatement);
+        try {
+            preparedStatement.close();
+        }
+        catch (SQLException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * @return id of the latest change or 0 if there were no changes
+     */
+    public static long findLastId()
+    {
+        Object lastId = Base.firstCell("SELECT max(id) FROM game_changes");
+        return lastId == null ? 0 : ((Number) lastId).longValue();
+    }
+
+    /**
+     * @return distinct ids of games changed after the change of the given id
+     */
+    public static List<Long> findChangedGames(long sinceChangeId)
+    {
+        List<Object> gameIds = Base.firstColumn("SELECT DISTINCT game_id FROM game_changes WHERE id > ? ORDER BY game_id", sinceChangeId);
+        return gameIds.stream()
+                .map(gameId -> ((Number) gameId).longValue())
+                .collect(toImmutableList());
+    }
+
+    /**
+     * @return the lowest id of a game not greater than maxGameId which was changed after the change of the given id
+     */
+    public static Optional<Long> findFirstChangedGame(long sinceChangeId, long maxGameId)
+    {
+        Object gameId = Base.firstCell("SELECT min(game_id) FROM game_changes WHERE id > ? AND game_id <= ?", sinceChangeId, maxGameId);
+        return Optional.ofNullable(gameId).map(id -> ((Number) id).longValue());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.model;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
+import org.javalite.activejdbc.Base;
+import org.javalite.activejdbc.Model;
+import org.javalite.activejdbc.annotations.CompositePK;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.join;
+import static java.util.Collections.nCopies;
+
+/**
+ * Game from the perspective of one of the playing teams, there are two results per each game. They are derived
+ * from games and have to be stored whenever a game is added.
+ */
+@CompositePK({"team_id", "played_at", "game_id"})
+public class TeamGameResult
+        extends Model
+{
+    @VisibleForTesting
+    public static final String DELETE_QUERY = "DELETE FROM team_game_results WHERE team_id = ? AND played_at = ? AND game_id = ?";
+
+    private static final int MAX_GAMES_PER_STATEMENT = 1000;
+
+    private static final String INSERT_FROM_GAMES = "INSERT INTO team_game_results " +
+            "(team_id, played_at, game_id, is_home, scored, conceded, result) " +
+            "SELECT home_team_id, played_at, id, TRUE, full_time_home_team_goals, full_time_away_team_goals, " +
+            result("full_time_home_team_goals", "full_time_away_team_goals") + " " +
+            "FROM games %1$s " +
+            "UNION ALL " +
+            "SELECT away_team_id, played_at, id, FALSE, full_time_away_team_goals, full_time_home_team_goals, " +
+            result("full_time_away_team_goals", "full_time_home_team_goals") + " " +
+            "FROM games %1$s";
+
+    private static String result(String scored, String conceded)
+    {
+        return "CASE " +
+                "WHEN " + scored + " > " + conceded + " THEN 'W' " +
+                "WHEN " + scored + " < " + conceded + " THEN 'L' " +
+                "WHEN " + scored + " = " + conceded + " THEN 'D' " +
+                "END";
+    }
+
+    /**
+     * Stores results of given, just added games.
+     *
+     * @return number of stored results
+     */
+    public static int store(Collection<Long> gameIds)
+    {
+        int count = 0;
+        for (List<Long> ids : Iterables.partition(gameIds, MAX_GAMES_PER_STATEMENT)) {
+            String filter = "WHERE id IN (" + join(", ", nCopies(ids.size(), "?")) + ")";
+            List<Object> parameters = new ArrayList<>(ids);
+            parameters.addAll(ids);
+            count += Base.exec(String.format(INSERT_FROM_GAMES, filter), parameters.toArray());
+        }
+        return count;
+    }
+
+    /**
+     * Replaces results of given, just updated games. Results are deleted by their primary keys,
+     * as there is no index on game_id alone.
+     *
+     * @return number of stored results
+     */
+    public static int refresh(Collection<Long> gameIds)
+    {
+        if (gameIds.isEmpty()) {
+            return 0;
+        }
+        PreparedStatement preparedStatement = Base.startBatch(DELETE_QUERY);
+        for (List<Long> ids : Iterables.partition(gameIds, MAX_GAMES_PER_STATEMENT)) {
+            List<Map> games = Base.findAll(
+                    "SELECT id, home_team_id, away_team_id, played_at FROM games WHERE id IN (" + join(", ", nCopies(ids.size(), "?")) + ")",
+                    ids.toArray());
+            for (Map game : games) {
+                Base.addBatch(preparedStatement, game.get("home_team_id"), game.get("played_at"), game.get("id"));
+                Base.addBatch(preparedStatement, game.get("away_team_id"), game.get("played_at"), game.get("id"));
+            }
+        }
+        Base.executeBatch(preparedStatement);
+        try {
+            preparedStatement.close();
+        }
+        catch (SQLException e) {
+            throw Throwables.propagate(e);
+        }
+        return store(gameIds);
+    }
+
+    /**
+     * Replaces all the results with ones derived from currently stored games.
+     *
+     * @return number of stored results
+     */
+    public static int rebuild()
+    {
+        TeamGameResult.deleteAll();
+        return Base.exec(String.format(INSERT_FROM_GAMES, ""));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.model;
+
+import org.javalite.activejdbc.DBException;
+import org.javalite.activejdbc.Model;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Rating of a team computed by a rater on a given date, absent rate means the team could not be rated.
+ */
+public class TeamRating
+        extends Model
+{
+    public static Optional<TeamRating> find(String rater, long teamId, Date ratedAt)
+    {
+        return Optional.ofNullable(TeamRating.findFirst("rater = ? AND team_id = ? AND rated_at = ?", rater, teamId, ratedAt));
+    }
+
+    /**
+     * Rating which was stored concurrently by other thread is kept.
+     */
+    public static void store(String rater, long teamId, Date ratedAt, Optional<Integer> rate)
+    {
+        try {
+            new TeamRating()
+                    .set("rater", rater)
+                    .set("team_id", teamId)
+                    .set("rated_at", ratedAt)
+                    .set("rate", rate.orElse(null))
+                    .saveIt();
+        }
+        catch (DBException e) {
+            if (!isDuplicateKey(e)) {
+                throw e;
+            }
+        }
+    }
+
+    private static boolean isDuplicateKey(DBException e)
+    {
+        if (!(e.getCause() instanceof SQLException)) {
+            return false;
+        }
+        // integrity constraint violation class, the state is not always reported
+        String sqlState = ((SQLException) e.getCause()).getSQLState();
+        return sqlState != null && sqlState.startsWith("23");
+    }
+
+    /**
+     * Removes ratings which could depend on a game of the team played at the given date. It has to be called
+     * whenever a game is added.
+     */
+    public static void invalidate(long teamId, Date playedAt)
+    {
+        TeamRating.delete("team_id = ? AND rated_at > ?", teamId, playedAt);
+    }
+
+    public Optional<Integer> getRate()
+    {
+        return Optional.ofNullable(getInteger("rate"));
+    }
+}
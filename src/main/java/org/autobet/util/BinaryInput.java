@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.util;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads values written with {@link BinaryOutput}.
+ */
+@NotThreadSafe
+public class BinaryInput
+{
+    private final byte[] buffer;
+    private int position;
+
+    public BinaryInput(byte[] buffer)
+    {
+        this.buffer = requireNonNull(buffer, "buffer is null");
+    }
+
+    public int readByte()
+    {
+        checkAvailable(1);
+        return buffer[position++];
+    }
+
+    public long readVarint()
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            checkAvailable(1);
+            byte current = buffer[position++];
+            value |= (long) (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at position " + position);
+    }
+
+    public int readIntVarint()
+    {
+        return Math.toIntExact(readVarint());
+    }
+
+    public long readSignedVarint()
+    {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public int readSignedIntVarint()
+    {
+        return Math.toIntExact(readSignedVarint());
+    }
+
+    public double readDouble()
+    {
+        checkAvailable(8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits |= (buffer[position++] & 0xFFL) << (i * 8);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public String readString()
+    {
+        int length = readIntVarint();
+        checkAvailable(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public boolean isFinished()
+    {
+        return position == buffer.length;
+    }
+
+    private void checkAvailable(int length)
+    {
+        checkArgument(length >= 0 && position + length <= buffer.length, "Unexpected end of input at position %s", position);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.util;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable buffer of primitives encoded with variable length integers, where small absolute values take less bytes.
+ */
+@NotThreadSafe
+public class BinaryOutput
+{
+    private byte[] buffer;
+    private int size;
+
+    public BinaryOutput()
+    {
+        this(64);
+    }
+
+    public BinaryOutput(int initialCapacity)
+    {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    public BinaryOutput writeByte(int value)
+    {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Writes non negative value in 7 bit groups, least significant group first.
+     */
+    public BinaryOutput writeVarint(long value)
+    {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Writes value with zig-zag encoding, so negative values of small magnitude are short as well.
+     */
+    public BinaryOutput writeSignedVarint(long value)
+    {
+        return writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    public BinaryOutput writeDouble(double value)
+    {
+        ensureCapacity(8);
+        long bits = Double.doubleToLongBits(value);
+        for (int i = 0; i < 8; i++) {
+            buffer[size++] = (byte) (bits >>> (i * 8));
+        }
+        return this;
+    }
+
+    public BinaryOutput writeString(String value)
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+        return this;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void ensureCapacity(int length)
+    {
+        if (size + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+        }
+    }
+}
@@ -15,30 +15,53 @@
 package org.autobet.util;
 
 import com.google.common.base.Throwables;
-import com.google.common.primitives.Ints;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Range;
+import net.jcip.annotations.NotThreadSafe;
 import net.jcip.annotations.ThreadSafe;
+import org.autobet.CloseableIterator;
 import org.autobet.model.Game;
+import org.autobet.model.GameChange;
 import org.autobet.ui.ProgressBar;
+import org.autobet.util.KeyValueStore.Version;
 import org.javalite.activejdbc.Base;
 
 import javax.inject.Provider;
 import javax.sql.DataSource;
 
+import java.sql.SQLException;
 import java.time.Duration;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.SortedMap;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongUnaryOperator;
 import java.util.stream.IntStream;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.runAsync;
 import static java.util.concurrent.CompletableFuture.supplyAsync;
 import static org.autobet.ImmutableCollectors.toImmutableList;
 
 public class GamesProcessorDriver
 {
+    private static final int CHUNK_SIZE = 2_000;
+    private static final int PAGE_SIZE = 1000;
+    private static final Duration CHECKPOINT_INTERVAL = Duration.ofMinutes(1);
+
     private final Timer timer = new Timer(true);
     private final DataSource dataSource;
     private final int threadsCount;
@@ -58,25 +81,130 @@ public class GamesProcessorDriver
             Provider<GamesProcessor<T>> gamesProcessorProvider,
             Optional<Integer> gamesLimit,
             Optional<Duration> timeLimit)
+    {
+        return driveProcessors(gamesProcessorProvider, startGame -> Game.findLastId(startGame, gamesLimit), timeLimit);
+    }
+
+    /**
+     * Processes games up to the given game id only, so once they are processed the stored result is just loaded,
+     * unless any of the games changes.
+     */
+    public <T extends KeyValueStore.Storable> T driveProcessorsUpTo(
+            Provider<GamesProcessor<T>> gamesProcessorProvider,
+            long lastGame,
+            Optional<Duration> timeLimit)
+    {
+        return driveProcessors(gamesProcessorProvider, startGame -> Math.max(startGame, lastGame), timeLimit);
+    }
+
+    /**
+     * @param lastGameFinder finds id of the last game to process for the id of the last already processed one
+     */
+    private <T extends KeyValueStore.Storable> T driveProcessors(
+            Provider<GamesProcessor<T>> gamesProcessorProvider,
+            LongUnaryOperator lastGameFinder,
+            Optional<Duration> timeLimit)
     {
         T union = gamesProcessorProvider.get().finish();
         String storeKey = union.getStorageKey();
-        String countKey = "count_" + storeKey;
-        Optional<T> cachedResult = KeyValueStore.loadLatest(storeKey, (Class<T>) union.getClass());
-        Optional<Integer> cachedCount = KeyValueStore.loadLatest(countKey, Integer.class);
+        String watermarkKey = "watermark_" + storeKey;
+        String changesKey = "changes_" + storeKey;
+        // games changed later are processed again by the next run
+        long lastChange = GameChange.findLastId();
+
+        // result and watermark are always stored together in a single transaction, results stored
+        // without the watermark (by older versions) do not tell which games they cover, so are ignored
+        long startGame = 0;
+        T cachedResult = union;
+        Optional<Long> cachedWatermark = KeyValueStore.loadLatest(watermarkKey, Long.class);
+        if (cachedWatermark.isPresent()) {
+            startGame = cachedWatermark.get();
+            cachedResult = (T) KeyValueStore.loadLatest(storeKey, union.getCodec()).orElse(union);
+
+            Optional<Long> seenChange = KeyValueStore.loadLatest(changesKey, Long.class);
+            Optional<Long> firstChangedGame = seenChange.flatMap(change -> GameChange.findFirstChangedGame(change, cachedWatermark.get()));
+            if (firstChangedGame.isPresent()) {
+                Optional<StoredCheckpoint<T>> checkpoint = findCheckpointBefore(storeKey, watermarkKey, union.getCodec(), firstChangedGame.get());
+                startGame = checkpoint.map(StoredCheckpoint::getWatermark).orElse(0L);
+                cachedResult = checkpoint.map(StoredCheckpoint::getResult).orElse(union);
+            }
+        }
+
+        long lastGame = lastGameFinder.applyAsLong(startGame);
+        if (lastGame <= startGame) {
+            return cachedResult;
+        }
+        long count = Game.count("id > ? AND id <= ?", startGame, lastGame);
+        ProgressBar progressBar = new ProgressBar(count, "games");
 
-        int startGame = 0;
-        if (cachedCount.isPresent()) {
-            startGame = cachedCount.get();
+        GameChunks chunks = new GameChunks(startGame, lastGame);
+        if (timeLimit.isPresent()) {
+            timer.schedule(new TimerTask()
+            {
+                @Override
+                public void run()
+                {
+                    progressBar.stop("Timeout");
+                    chunks.close();
+                }
+            }, timeLimit.get().toMillis());
         }
+        Checkpoint<T> checkpoint = new Checkpoint<>(storeKey, watermarkKey, changesKey, lastChange, cachedResult, startGame);
+        processGames(gamesProcessorProvider, progressBar, chunks, checkpoint);
+        return checkpoint.getResult();
+    }
 
-        long count = Game.count() - startGame;
+    /**
+     * Finds the latest stored checkpoint which does not cover the given game, so the games which follow it
+     * can be processed again. Result of a checkpoint is the latest one stored before its watermark, only that
+     * single result is loaded.
+     */
+    private static <T extends KeyValueStore.Storable> Optional<StoredCheckpoint<T>> findCheckpointBefore(
+            String storeKey,
+            String watermarkKey,
+            KeyValueStore.Codec<T> codec,
+            long game)
+    {
+        for (Version<Long> watermark : KeyValueStore.loadVersions(watermarkKey, Long.class)) {
+            if (watermark.getValue() < game) {
+                return KeyValueStore.loadLatestBefore(storeKey, watermark.getId(), codec)
+                        .map(result -> new StoredCheckpoint<>(watermark.getValue(), result.getValue()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Processes games from the snapshot without any database access. Results are neither
+     * read from nor written to {@link KeyValueStore}, as such processing is cheap to be repeated.
+     */
+    public <T extends KeyValueStore.Storable> T driveProcessors(
+            GamesSnapshot snapshot,
+            Provider<GamesProcessor<T>> gamesProcessorProvider,
+            Optional<Integer> gamesLimit,
+            Optional<Duration> timeLimit)
+    {
+        return driveProcessors(snapshot, 0, gamesProcessorProvider, gamesLimit, timeLimit);
+    }
+
+    /**
+     * Processes games from the snapshot starting from the given one, games limit applies to the processed games.
+     */
+    public <T extends KeyValueStore.Storable> T driveProcessors(
+            GamesSnapshot snapshot,
+            int firstGame,
+            Provider<GamesProcessor<T>> gamesProcessorProvider,
+            Optional<Integer> gamesLimit,
+            Optional<Duration> timeLimit)
+    {
+        checkArgument(firstGame >= 0 && firstGame <= snapshot.getGamesCount(), "firstGame is out of the snapshot range: %s", firstGame);
+        int count = snapshot.getGamesCount() - firstGame;
         if (gamesLimit.isPresent() && gamesLimit.get() < count) {
             count = gamesLimit.get();
         }
         ProgressBar progressBar = new ProgressBar(count, "games");
 
-        GameSupplier games = new GameSupplier(startGame, gamesLimit);
+        AtomicBoolean finished = new AtomicBoolean();
         if (timeLimit.isPresent()) {
             timer.schedule(new TimerTask()
             {
@@ -84,44 +212,112 @@ public class GamesProcessorDriver
                 public void run()
                 {
                     progressBar.stop("Timeout");
-                    games.close();
+                    finished.set(true);
                 }
             }, timeLimit.get().toMillis());
         }
-        T result = processGames(gamesProcessorProvider, cachedResult.orElse(union), progressBar, games);
 
-        KeyValueStore.store(storeKey, result);
-        KeyValueStore.store(countKey, Ints.checkedCast(startGame + games.getCount()));
-        return result;
+        int gamesCount = count;
+        int partitionSize = (gamesCount + threadsCount - 1) / threadsCount;
+        List<CompletableFuture<T>> futures = IntStream.range(0, threadsCount)
+                .mapToObj(i -> supplyAsync(() -> {
+                    GamesProcessor<T> gamesProcessor = gamesProcessorProvider.get();
+                    int end = firstGame + Math.min(gamesCount, (i + 1) * partitionSize);
+                    for (int game = firstGame + i * partitionSize; game < end && !finished.get(); game++) {
+                        gamesProcessor.process(snapshot, game);
+                        progressBar.increment();
+                    }
+                    return gamesProcessor.finish();
+                })).collect(toImmutableList());
+
+        return merge(gamesProcessorProvider.get().finish(), futures);
     }
 
-    private <T extends KeyValueStore.Storable> T processGames(
+    /**
+     * Workers process every claimed chunk with a fresh processor and hand the partial results over to the
+     * calling thread, which merges them into the checkpoint in the order of game ids and periodically
+     * stores it. Chunks completed out of order wait until all the preceding chunks are done.
+     */
+    private <T extends KeyValueStore.Storable> void processGames(
             Provider<GamesProcessor<T>> gamesProcessorProvider,
-            T cachedResult,
             ProgressBar progressBar,
-            GameSupplier games)
+            GameChunks chunks,
+            Checkpoint<T> checkpoint)
     {
-        List<CompletableFuture<T>> futures = IntStream.range(0, threadsCount)
-                .mapToObj(i -> supplyAsync(() -> {
-                    Base.open(dataSource);
-                    try {
-                        GamesProcessor<T> gamesProcessor = gamesProcessorProvider.get();
-                        while (true) {
-                            Optional<Game> game = games.next();
-                            if (!game.isPresent()) {
-                                break;
+        BlockingQueue<ProcessedChunk<T>> processedChunks = new LinkedBlockingQueue<>();
+        // workers block on the database, so they do not share the common pool, which could be
+        // already occupied by the caller
+        ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+        try {
+            List<CompletableFuture<Void>> futures = IntStream.range(0, threadsCount)
+                    .mapToObj(i -> runAsync(() -> {
+                        Base.open(dataSource);
+                        try {
+                            while (true) {
+                                Optional<Range<Long>> chunk = chunks.next();
+                                if (!chunk.isPresent()) {
+                                    break;
+                                }
+                                Optional<T> result = processChunk(gamesProcessorProvider.get(), chunk.get(), progressBar, chunks);
+                                if (result.isPresent()) {
+                                    processedChunks.add(new ProcessedChunk<>(chunk.get(), result.get()));
+                                }
                             }
-                            gamesProcessor.process(game.get());
-                            progressBar.increment();
                         }
-                        return gamesProcessor.finish();
-                    }
-                    finally {
-                        Base.close();
-                    }
-                })).collect(toImmutableList());
+                        finally {
+                            Base.close();
+                        }
+                    }, executor)).collect(toImmutableList());
 
-        T result = cachedResult;
+            CompletableFuture<Void> workers = allOf(futures.toArray(new CompletableFuture[futures.size()]));
+            while (!workers.isDone() || !processedChunks.isEmpty()) {
+                ProcessedChunk<T> processedChunk = processedChunks.poll(1, TimeUnit.SECONDS);
+                if (processedChunk != null) {
+                    checkpoint.add(processedChunk);
+                }
+                if (checkpoint.isDue()) {
+                    checkpoint.store();
+                }
+            }
+            // games processed so far are stored even if any of the workers has failed
+            checkpoint.store();
+            workers.get();
+        }
+        catch (InterruptedException | ExecutionException e) {
+            throw Throwables.propagate(e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return result of the chunk processing or empty if the processing was abandoned as chunks got closed
+     */
+    private static <T extends KeyValueStore.Storable> Optional<T> processChunk(
+            GamesProcessor<T> gamesProcessor,
+            Range<Long> chunk,
+            ProgressBar progressBar,
+            GameChunks chunks)
+    {
+        try (CloseableIterator<Game> games = Game.streamByIdRange(chunk.lowerEndpoint(), chunk.upperEndpoint())) {
+            while (games.hasNext()) {
+                if (chunks.isClosed()) {
+                    return Optional.empty();
+                }
+                List<Game> page = ImmutableList.copyOf(Iterators.limit(games, PAGE_SIZE));
+                Game.fetchBets(page);
+                for (Game game : page) {
+                    gamesProcessor.process(game);
+                    progressBar.increment();
+                }
+            }
+        }
+        return Optional.of(gamesProcessor.finish());
+    }
+
+    private <T extends KeyValueStore.Storable> T merge(T result, List<CompletableFuture<T>> futures)
+    {
         for (CompletableFuture<T> future : futures) {
             try {
                 result = (T) result.merge(future.get());
@@ -137,38 +333,164 @@ public class GamesProcessorDriver
     {
         void process(Game game);
 
+        void process(GamesSnapshot snapshot, int game);
+
         T finish();
     }
 
+    /**
+     * Hands out consecutive ranges of game ids to the workers with a single atomic cursor.
+     */
     @ThreadSafe
-    private class GameSupplier
+    private static class GameChunks
+    {
+        private final AtomicLong cursor;
+        private final long lastGame;
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private GameChunks(long startGame, long lastGame)
+        {
+            this.cursor = new AtomicLong(startGame + 1);
+            this.lastGame = lastGame;
+        }
+
+        private Optional<Range<Long>> next()
+        {
+            if (finished.get()) {
+                return Optional.empty();
+            }
+            long first = cursor.getAndAdd(CHUNK_SIZE);
+            if (first > lastGame) {
+                return Optional.empty();
+            }
+            return Optional.of(Range.closed(first, Math.min(first + CHUNK_SIZE - 1, lastGame)));
+        }
+
+        public void close()
+        {
+            finished.set(true);
+        }
+
+        public boolean isClosed()
+        {
+            return finished.get();
+        }
+    }
+
+    private static class StoredCheckpoint<T extends KeyValueStore.Storable>
+    {
+        private final long watermark;
+        private final T result;
+
+        private StoredCheckpoint(long watermark, T result)
+        {
+            this.watermark = watermark;
+            this.result = result;
+        }
+
+        public long getWatermark()
+        {
+            return watermark;
+        }
+
+        public T getResult()
+        {
+            return result;
+        }
+    }
+
+    private static class ProcessedChunk<T extends KeyValueStore.Storable>
+    {
+        private final Range<Long> chunk;
+        private final T result;
+
+        private ProcessedChunk(Range<Long> chunk, T result)
+        {
+            this.chunk = chunk;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Result of processing all the games up to the watermark, which is the id of the last game of the
+     * contiguous range of processed chunks. Stored result always matches the stored watermark, so a run
+     * which is interrupted or fails continues from the last stored checkpoint without counting any game twice.
+     */
+    @NotThreadSafe
+    private static class Checkpoint<T extends KeyValueStore.Storable>
     {
-        private final Iterator<Game> games;
-        private int count = 0;
-        private boolean finished = false;
+        private final String storeKey;
+        private final String watermarkKey;
+        private final String changesKey;
+        private final long lastChange;
+        private final SortedMap<Long, ProcessedChunk<T>> pending = new TreeMap<>();
+        private T result;
+        private long watermark;
+        private long storedWatermark;
+        private long lastStoreNanos = System.nanoTime();
 
-        private GameSupplier(int startGame, Optional<Integer> gamesLimit)
+        private Checkpoint(String storeKey, String watermarkKey, String changesKey, long lastChange, T result, long watermark)
         {
-            games = Game.findAll(startGame, gamesLimit).iterator();
+            this.storeKey = storeKey;
+            this.watermarkKey = watermarkKey;
+            this.changesKey = changesKey;
+            this.lastChange = lastChange;
+            this.result = result;
+            this.watermark = watermark;
+            this.storedWatermark = watermark;
         }
 
-        private synchronized Optional<Game> next()
+        public void add(ProcessedChunk<T> processedChunk)
         {
-            if (!finished && games.hasNext()) {
-                count++;
-                return Optional.of(games.next());
+            pending.put(processedChunk.chunk.lowerEndpoint(), processedChunk);
+            while (!pending.isEmpty() && pending.firstKey() == watermark + 1) {
+                ProcessedChunk<T> next = pending.remove(pending.firstKey());
+                result = (T) result.merge(next.result);
+                watermark = next.chunk.upperEndpoint();
             }
-            return Optional.empty();
         }
 
-        public synchronized void close()
+        public boolean isDue()
         {
-            finished = true;
+            return watermark > storedWatermark && System.nanoTime() - lastStoreNanos >= CHECKPOINT_INTERVAL.toNanos();
+        }
+
+        public void store()
+        {
+            if (watermark == storedWatermark) {
+                return;
+            }
+            Base.openTransaction();
+            try {
+                KeyValueStore.store(storeKey, result);
+                KeyValueStore.store(watermarkKey, watermark);
+                KeyValueStore.store(changesKey, lastChange);
+                Base.commitTransaction();
+            }
+            catch (RuntimeException e) {
+                Base.rollbackTransaction();
+                throw e;
+            }
+            finally {
+                restoreAutoCommit();
+            }
+            storedWatermark = watermark;
+            lastStoreNanos = System.nanoTime();
+        }
+
+        private static void restoreAutoCommit()
+        {
+            try {
+                Base.connection().setAutoCommit(true);
+            }
+            catch (SQLException e) {
+                throw Throwables.propagate(e);
+            }
         }
 
-        public int getCount()
+        public T getResult()
         {
-            return count;
+            return result;
         }
     }
 }
@@ -0,0 +1,383 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.util;
+
+import com.google.common.base.Throwables;
+import net.jcip.annotations.Immutable;
+import org.javalite.activejdbc.Base;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Columnar, in memory copy of games, bets and teams tables. Games are kept in id order,
+ * bets of a game are stored contiguously in bet arrays, so processing does not need any database access.
+ */
+@Immutable
+public final class GamesSnapshot
+{
+    public static final byte NO_GOALS = -1;
+    public static final byte NO_RESULT = 0;
+
+    private final int[] gameIds;
+    private final int[] homeTeamIds;
+    private final int[] awayTeamIds;
+    private final int[] playedAt;
+    private final byte[] fullTimeHomeTeamGoals;
+    private final byte[] fullTimeAwayTeamGoals;
+    private final byte[] fullTimeResults;
+
+    // bets of game i are stored at [betOffsets[i], betOffsets[i + 1])
+    private final int[] betOffsets;
+    private final byte[] betTypeIds;
+    private final byte[] betVendorIds;
+    private final float[] odds;
+    // indexed by bet type id, contains full time result on which bet is winning
+    private final byte[] betTypeResults;
+
+    // indexed by team id
+    private final String[] teamNames;
+
+    public static GamesSnapshot load()
+    {
+        Builder builder = builder();
+        Connection connection = Base.connection();
+        try {
+            query(connection, "SELECT id, bet_suffix FROM bet_types", resultSet ->
+                    builder.addBetType(resultSet.getInt(1), resultSet.getString(2)));
+            query(connection, "SELECT id, name FROM teams", resultSet ->
+                    builder.addTeam(resultSet.getInt(1), resultSet.getString(2)));
+            query(connection,
+                    "SELECT id, home_team_id, away_team_id, played_at, " +
+                            "full_time_home_team_goals, full_time_away_team_goals, full_time_result " +
+                            "FROM games ORDER BY id",
+                    resultSet -> builder.addGame(
+                            resultSet.getInt(1),
+                            resultSet.getInt(2),
+                            resultSet.getInt(3),
+                            resultSet.getDate(4).toLocalDate(),
+                            getGoals(resultSet, 5),
+                            getGoals(resultSet, 6),
+                            resultSet.getString(7)));
+            query(connection, "SELECT game_id, bet_vendor_id, bet_type_id, odds FROM bets ORDER BY game_id, id", resultSet ->
+                    builder.addBet(resultSet.getInt(1), resultSet.getInt(2), resultSet.getInt(3), resultSet.getFloat(4)));
+        }
+        catch (SQLException e) {
+            throw Throwables.propagate(e);
+        }
+        return builder.build();
+    }
+
+    private static byte getGoals(ResultSet resultSet, int column)
+            throws SQLException
+    {
+        byte goals = resultSet.getByte(column);
+        return resultSet.wasNull() ? NO_GOALS : goals;
+    }
+
+    private static void query(Connection connection, String sql, RowConsumer consumer)
+            throws SQLException
+    {
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+                ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                consumer.accept(resultSet);
+            }
+        }
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    private GamesSnapshot(Builder builder)
+    {
+        int gamesCount = builder.gamesCount;
+        gameIds = Arrays.copyOf(builder.gameIds, gamesCount);
+        homeTeamIds = Arrays.copyOf(builder.homeTeamIds, gamesCount);
+        awayTeamIds = Arrays.copyOf(builder.awayTeamIds, gamesCount);
+        playedAt = Arrays.copyOf(builder.playedAt, gamesCount);
+        fullTimeHomeTeamGoals = Arrays.copyOf(builder.fullTimeHomeTeamGoals, gamesCount);
+        fullTimeAwayTeamGoals = Arrays.copyOf(builder.fullTimeAwayTeamGoals, gamesCount);
+        fullTimeResults = Arrays.copyOf(builder.fullTimeResults, gamesCount);
+        betTypeResults = builder.betTypeResults;
+        teamNames = builder.teamNames;
+
+        // group bets by game with counting sort, keeping the order in which bets were added
+        int betsCount = builder.betsCount;
+        betOffsets = new int[gamesCount + 1];
+        for (int bet = 0; bet < betsCount; bet++) {
+            betOffsets[builder.betGames[bet] + 1]++;
+        }
+        for (int game = 0; game < gamesCount; game++) {
+            betOffsets[game + 1] += betOffsets[game];
+        }
+        betTypeIds = new byte[betsCount];
+        betVendorIds = new byte[betsCount];
+        odds = new float[betsCount];
+        int[] nextBet = Arrays.copyOf(betOffsets, gamesCount);
+        for (int bet = 0; bet < betsCount; bet++) {
+            int position = nextBet[builder.betGames[bet]]++;
+            betTypeIds[position] = builder.betTypeIds[bet];
+            betVendorIds[position] = builder.betVendorIds[bet];
+            odds[position] = builder.odds[bet];
+        }
+    }
+
+    public int getGamesCount()
+    {
+        return gameIds.length;
+    }
+
+    public int getGameId(int game)
+    {
+        return gameIds[game];
+    }
+
+    public int getHomeTeamId(int game)
+    {
+        return homeTeamIds[game];
+    }
+
+    public int getAwayTeamId(int game)
+    {
+        return awayTeamIds[game];
+    }
+
+    /**
+     * @return date of the game as epoch day
+     */
+    public int getPlayedAt(int game)
+    {
+        return playedAt[game];
+    }
+
+    /**
+     * @return goals or {@link #NO_GOALS} when game was not played yet
+     */
+    public byte getFullTimeHomeTeamGoals(int game)
+    {
+        return fullTimeHomeTeamGoals[game];
+    }
+
+    /**
+     * @return goals or {@link #NO_GOALS} when game was not played yet
+     */
+    public byte getFullTimeAwayTeamGoals(int game)
+    {
+        return fullTimeAwayTeamGoals[game];
+    }
+
+    /**
+     * @return one of 'H', 'D', 'A' or {@link #NO_RESULT} when game was not played yet
+     */
+    public byte getFullTimeResult(int game)
+    {
+        return fullTimeResults[game];
+    }
+
+    /**
+     * @return index of the first bet of the game
+     */
+    public int getBetsStart(int game)
+    {
+        return betOffsets[game];
+    }
+
+    /**
+     * @return index after the last bet of the game
+     */
+    public int getBetsEnd(int game)
+    {
+        return betOffsets[game + 1];
+    }
+
+    public int getBetsCount()
+    {
+        return odds.length;
+    }
+
+    public int getBetTypeId(int bet)
+    {
+        return betTypeIds[bet];
+    }
+
+    public int getBetVendorId(int bet)
+    {
+        return betVendorIds[bet];
+    }
+
+    public double getOdds(int bet)
+    {
+        return odds[bet];
+    }
+
+    /**
+     * @return full time result ('H', 'D' or 'A') for which bet is winning
+     */
+    public byte getBetResult(int bet)
+    {
+        return betTypeResults[betTypeIds[bet]];
+    }
+
+    public boolean isWinning(int game, int bet)
+    {
+        return fullTimeResults[game] != NO_RESULT && getBetResult(bet) == fullTimeResults[game];
+    }
+
+    /**
+     * @return upper bound of team ids, all team ids are lower or equal to it
+     */
+    public int getMaxTeamId()
+    {
+        return teamNames.length - 1;
+    }
+
+    public String getTeamName(int teamId)
+    {
+        return teamNames[teamId];
+    }
+
+    public static class Builder
+    {
+        private int gamesCount;
+        private int[] gameIds = new int[1024];
+        private int[] homeTeamIds = new int[1024];
+        private int[] awayTeamIds = new int[1024];
+        private int[] playedAt = new int[1024];
+        private byte[] fullTimeHomeTeamGoals = new byte[1024];
+        private byte[] fullTimeAwayTeamGoals = new byte[1024];
+        private byte[] fullTimeResults = new byte[1024];
+
+        private int betsCount;
+        private int[] betGames = new int[1024];
+        private byte[] betTypeIds = new byte[1024];
+        private byte[] betVendorIds = new byte[1024];
+        private float[] odds = new float[1024];
+
+        private byte[] betTypeResults = new byte[0];
+        private String[] teamNames = new String[0];
+
+        private Builder() {}
+
+        public Builder addBetType(int id, String suffix)
+        {
+            checkArgument(suffix.length() == 1, "Unexpected bet suffix: %s", suffix);
+            if (id >= betTypeResults.length) {
+                betTypeResults = Arrays.copyOf(betTypeResults, id + 1);
+            }
+            betTypeResults[id] = (byte) suffix.charAt(0);
+            return this;
+        }
+
+        public Builder addTeam(int id, String name)
+        {
+            if (id >= teamNames.length) {
+                teamNames = Arrays.copyOf(teamNames, Math.max(id + 1, teamNames.length * 2));
+            }
+            teamNames[id] = requireNonNull(name, "name is null");
+            return this;
+        }
+
+        /**
+         * Games have to be added in the id order.
+         */
+        public Builder addGame(
+                int id,
+                int homeTeamId,
+                int awayTeamId,
+                LocalDate playedAt,
+                byte fullTimeHomeTeamGoals,
+                byte fullTimeAwayTeamGoals,
+                String fullTimeResult)
+        {
+            checkArgument(gamesCount == 0 || gameIds[gamesCount - 1] < id, "Games have to be added in id order");
+            if (gamesCount == gameIds.length) {
+                int capacity = gamesCount * 2;
+                gameIds = Arrays.copyOf(gameIds, capacity);
+                homeTeamIds = Arrays.copyOf(homeTeamIds, capacity);
+                awayTeamIds = Arrays.copyOf(awayTeamIds, capacity);
+                this.playedAt = Arrays.copyOf(this.playedAt, capacity);
+                this.fullTimeHomeTeamGoals = Arrays.copyOf(this.fullTimeHomeTeamGoals, capacity);
+                this.fullTimeAwayTeamGoals = Arrays.copyOf(this.fullTimeAwayTeamGoals, capacity);
+                fullTimeResults = Arrays.copyOf(fullTimeResults, capacity);
+            }
+            gameIds[gamesCount] = id;
+            homeTeamIds[gamesCount] = homeTeamId;
+            awayTeamIds[gamesCount] = awayTeamId;
+            this.playedAt[gamesCount] = toIntExact(playedAt.toEpochDay());
+            this.fullTimeHomeTeamGoals[gamesCount] = fullTimeHomeTeamGoals;
+            this.fullTimeAwayTeamGoals[gamesCount] = fullTimeAwayTeamGoals;
+            fullTimeResults[gamesCount] = fullTimeResult == null ? NO_RESULT : (byte) fullTimeResult.charAt(0);
+            gamesCount++;
+            return this;
+        }
+
+        /**
+         * Bets of games which were not added are ignored.
+         */
+        public Builder addBet(int gameId, int betVendorId, int betTypeId, float odds)
+        {
+            // ids are stored as bytes
+            checkArgument(betVendorId >= 0 && betVendorId <= Byte.MAX_VALUE, "Bet vendor id out of range: %s", betVendorId);
+            checkArgument(betTypeId >= 0 && betTypeId <= Byte.MAX_VALUE, "Bet type id out of range: %s", betTypeId);
+            int game = Arrays.binarySearch(gameIds, 0, gamesCount, gameId);
+            if (game < 0) {
+                return this;
+            }
+            if (betsCount == betGames.length) {
+                int capacity = betsCount * 2;
+                betGames = Arrays.copyOf(betGames, capacity);
+                betTypeIds = Arrays.copyOf(betTypeIds, capacity);
+                betVendorIds = Arrays.copyOf(betVendorIds, capacity);
+                this.odds = Arrays.copyOf(this.odds, capacity);
+            }
+            betGames[betsCount] = game;
+            betTypeIds[betsCount] = (byte) betTypeId;
+            betVendorIds[betsCount] = (byte) betVendorId;
+            this.odds[betsCount] = odds;
+            betsCount++;
+            return this;
+        }
+
+        public GamesSnapshot build()
+        {
+            for (int game = 0; game < gamesCount; game++) {
+                checkState(homeTeamIds[game] < teamNames.length && teamNames[homeTeamIds[game]] != null, "Unknown team: %s", homeTeamIds[game]);
+                checkState(awayTeamIds[game] < teamNames.length && teamNames[awayTeamIds[game]] != null, "Unknown team: %s", awayTeamIds[game]);
+            }
+            for (int bet = 0; bet < betsCount; bet++) {
+                checkState(betTypeIds[bet] < betTypeResults.length && betTypeResults[betTypeIds[bet]] != 0, "Unknown bet type: %s", betTypeIds[bet]);
+            }
+            return new GamesSnapshot(this);
+        }
+    }
+
+    private interface RowConsumer
+    {
+        void accept(ResultSet resultSet)
+                throws SQLException;
+    }
+}
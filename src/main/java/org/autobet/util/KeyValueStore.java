@@ -11,68 +11,324 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+
 package org.autobet.util;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.autobet.model.KeyValueStoreEntry;
+import org.javalite.activejdbc.Base;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static org.autobet.ImmutableCollectors.toImmutableList;
 
+/**
+ * Stores {@link Storable} values with their binary {@link Codec}, other values are stored as JSON. Storables
+ * are stored as JSON as well, for debugging, when {@value #JSON_PROPERTY} system property is set to true.
+ * Storables are loaded with their codec whatever format they were stored in, so older JSON entries are still read.
+ * <p>
+ * Latest entries are cached in the process, with {@link #store(String, Object)} invalidating the entry of the
+ * stored key, so entries stored by other processes in the meantime may not be seen until {@link #invalidateCache()}.
+ */
 public class KeyValueStore
 {
+    public static final String JSON_PROPERTY = "autobet.kv.json";
+
+    // deflate does not pay off for small values
+    private static final int DEFLATE_THRESHOLD = 256;
+
+    private static final int CACHE_SIZE = 1000;
+
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Cache<String, Optional<Entry>> latestEntries = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build();
+
+    private enum Format
+    {
+        JSON, BINARY, DEFLATED_BINARY
+    }
 
     public static void store(String key, Object value)
     {
+        if (value instanceof Storable && !Boolean.getBoolean(JSON_PROPERTY)) {
+            storeBinary(key, (Storable) value);
+            return;
+        }
         try {
             String valueAsString = objectMapper.writeValueAsString(value);
-            KeyValueStoreEntry entry = new KeyValueStoreEntry().set("_key", key).set("_value", valueAsString);
+            KeyValueStoreEntry entry = new KeyValueStoreEntry()
+                    .set("_key", key)
+                    .set("_format", Format.JSON.name())
+                    .set("_value", valueAsString);
             checkState(entry.save(), "Unable to store: %s -> %s", key, valueAsString);
+            // entry is not cached as it might be stored within a transaction which is rolled back later
+            latestEntries.invalidate(key);
         }
         catch (JsonProcessingException e) {
             Throwables.propagate(e);
         }
     }
 
+    private static void storeBinary(String key, Storable value)
+    {
+        BinaryOutput output = new BinaryOutput();
+        value.getCodec().encode(value, output);
+        byte[] bytes = output.toByteArray();
+        Format format = Format.BINARY;
+        if (bytes.length >= DEFLATE_THRESHOLD) {
+            byte[] deflated = deflate(bytes);
+            if (deflated.length < bytes.length) {
+                bytes = deflated;
+                format = Format.DEFLATED_BINARY;
+            }
+        }
+        KeyValueStoreEntry entry = new KeyValueStoreEntry()
+                .set("_key", key)
+                .set("_format", format.name())
+                .set("_binary_value", bytes);
+        checkState(entry.save(), "Unable to store: %s -> %s", key, value);
+        latestEntries.invalidate(key);
+    }
+
     public static <T> Optional<T> loadLatest(String key, Class<T> clazz)
     {
-        KeyValueStoreEntry entry = KeyValueStoreEntry.findFirst("_key = ? ORDER BY id DESC", key);
+        return loadLatest(key).map(entry -> readJson(key, entry, clazz));
+    }
+
+    public static <T> Optional<T> loadLatest(String key, TypeReference<T> typeReference)
+    {
+        return loadLatest(key).map(entry -> {
+            checkState(entry.format == Format.JSON, "Entry %s is not stored as JSON", key);
+            try {
+                return objectMapper.readValue(entry.json, typeReference);
+            }
+            catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        });
+    }
+
+    public static <T> Optional<T> loadLatest(String key, Codec<T> codec)
+    {
+        return loadLatest(key).map(entry -> decode(key, entry, codec));
+    }
+
+    /**
+     * Removes all but the given number of latest entries for each key. Games processing results are versioned
+     * by checkpoints, so when games processed before the oldest kept checkpoint change, they are all processed
+     * again from the first game.
+     *
+     * @return number of removed entries
+     */
+    public static int compact(int keep)
+    {
+        checkArgument(keep > 0, "At least one entry per key has to be kept");
+        int removed = 0;
+        for (Object key : Base.firstColumn("SELECT DISTINCT _key FROM key_value_store_entries")) {
+            Object oldestKept = Base.firstCell(
+                    "SELECT id FROM key_value_store_entries WHERE _key = ? ORDER BY id DESC LIMIT 1 OFFSET ?",
+                    key,
+                    keep - 1);
+            if (oldestKept != null) {
+                removed += Base.exec("DELETE FROM key_value_store_entries WHERE _key = ? AND id < ?", key, oldestKept);
+            }
+        }
+        invalidateCache();
+        return removed;
+    }
+
+    public static void invalidateCache()
+    {
+        latestEntries.invalidateAll();
+    }
+
+    private static Optional<Entry> loadLatest(String key)
+    {
+        try {
+            return latestEntries.get(key, () -> {
+                KeyValueStoreEntry entry = KeyValueStoreEntry.findFirst("_key = ? ORDER BY id DESC", key);
+                if (entry == null) {
+                    return Optional.empty();
+                }
+                return Optional.of(toEntry(key, entry));
+            });
+        }
+        catch (ExecutionException | UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * @return all stored versions of the key, the latest first
+     */
+    public static <T> List<Version<T>> loadVersions(String key, Class<T> clazz)
+    {
+        return loadVersions(key, entry -> readJson(key, entry, clazz));
+    }
+
+    /**
+     * @return the latest version of the key stored before the entry of the given id
+     */
+    public static <T> Optional<Version<T>> loadLatestBefore(String key, long id, Codec<T> codec)
+    {
+        KeyValueStoreEntry entry = KeyValueStoreEntry.findFirst("_key = ? AND id < ? ORDER BY id DESC", key, id);
         if (entry == null) {
             return Optional.empty();
         }
+        return Optional.of(new Version<>(entry.getLongId(), decode(key, toEntry(key, entry), codec)));
+    }
+
+    private static <T> List<Version<T>> loadVersions(String key, Function<Entry, T> reader)
+    {
+        List<KeyValueStoreEntry> entries = KeyValueStoreEntry.find("_key = ? ORDER BY id DESC", key);
+        return entries.stream()
+                .map(entry -> new Version<>(entry.getLongId(), reader.apply(toEntry(key, entry))))
+                .collect(toImmutableList());
+    }
+
+    private static Entry toEntry(String key, KeyValueStoreEntry entry)
+    {
+        // entries stored before formats were introduced are all JSON
+        String format = entry.getString("_format");
+        switch (format == null ? Format.JSON : Format.valueOf(format)) {
+            case JSON:
+                return new Entry(Format.JSON, entry.getString("_value"), null);
+            case BINARY:
+                return new Entry(Format.BINARY, null, entry.getBytes("_binary_value"));
+            case DEFLATED_BINARY:
+                return new Entry(Format.BINARY, null, inflate(entry.getBytes("_binary_value")));
+            default:
+                throw new IllegalStateException("Unknown format of " + key + ": " + format);
+        }
+    }
+
+    private static <T> T decode(String key, Entry entry, Codec<T> codec)
+    {
+        if (entry.format == Format.JSON) {
+            return readJson(key, entry, codec.getType());
+        }
+        BinaryInput input = new BinaryInput(entry.binary);
+        T value = codec.decode(input);
+        checkState(input.isFinished(), "Entry %s was not fully decoded", key);
+        return value;
+    }
+
+    private static <T> T readJson(String key, Entry entry, Class<T> clazz)
+    {
+        checkState(entry.format == Format.JSON, "Entry %s is not stored as JSON", key);
         try {
-            T value = objectMapper.readValue((String) entry.get("_value"), clazz);
-            return Optional.of(value);
+            return objectMapper.readValue(entry.json, clazz);
         }
         catch (IOException e) {
             throw Throwables.propagate(e);
         }
     }
 
-    public static <T> Optional<T> loadLatest(String key, TypeReference<T> typeReference)
+    private static byte[] deflate(byte[] bytes)
     {
-        KeyValueStoreEntry entry = KeyValueStoreEntry.findFirst("_key = ? ORDER BY id DESC", key);
-        if (entry == null) {
-            return Optional.empty();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length);
+        // stream does not release native memory of a deflater it has not created itself
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(output, deflater)) {
+            deflaterOutput.write(bytes);
         }
-        try {
-            T value = objectMapper.readValue((String) entry.get("_value"), typeReference);
-            return Optional.of(value);
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        finally {
+            deflater.end();
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] bytes)
+    {
+        try (InputStream inflater = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+            return ByteStreams.toByteArray(inflater);
         }
         catch (IOException e) {
             throw Throwables.propagate(e);
         }
     }
 
+    /**
+     * Latest entry of a key, with the binary value already inflated.
+     */
+    private static class Entry
+    {
+        private final Format format;
+        private final String json;
+        private final byte[] binary;
+
+        private Entry(Format format, String json, byte[] binary)
+        {
+            this.format = format;
+            this.json = json;
+            this.binary = binary;
+        }
+    }
+
+    /**
+     * Value of a key stored in the entry of the given id, ids of later stored entries are greater.
+     */
+    public static class Version<T>
+    {
+        private final long id;
+        private final T value;
+
+        private Version(long id, T value)
+        {
+            this.id = id;
+            this.value = value;
+        }
+
+        public long getId()
+        {
+            return id;
+        }
+
+        public T getValue()
+        {
+            return value;
+        }
+    }
+
     public interface Storable <T extends Storable> {
         String getStorageKey();
 
         T merge(T other);
+
+        @JsonIgnore
+        Codec<T> getCodec();
+    }
+
+    public interface Codec<T>
+    {
+        Class<T> getType();
+
+        void encode(T value, BinaryOutput output);
+
+        T decode(BinaryInput input);
     }
 }
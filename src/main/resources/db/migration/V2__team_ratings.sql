@@ -0,0 +1,11 @@
+CREATE TABLE team_ratings (
+    id bigint auto_increment,
+    rater varchar(128),
+    team_id bigint,
+    rated_at date,
+    -- NULL when the team could not be rated
+    rate int,
+    primary key (id));
+
+CREATE UNIQUE INDEX team_ratings_key_index ON team_ratings (rater, team_id, rated_at);
+CREATE INDEX team_ratings_team_index ON team_ratings (team_id, rated_at);
@@ -0,0 +1,2 @@
+ALTER TABLE key_value_store_entries ADD COLUMN _format varchar(16);
+ALTER TABLE key_value_store_entries ADD COLUMN _binary_value mediumblob;
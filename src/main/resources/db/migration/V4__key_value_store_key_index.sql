@@ -0,0 +1 @@
+CREATE INDEX key_value_store_entries_key_index ON key_value_store_entries (_key, id);
@@ -0,0 +1,57 @@
+-- duplicates could have been loaded by concurrent writers, rows referencing them are moved to the first
+-- of the duplicates, which is kept, before the rest is removed, so the unique indexes below can be created
+CREATE TABLE duplicates (
+    id bigint,
+    kept_id bigint,
+    primary key (id));
+
+INSERT INTO duplicates (id, kept_id)
+SELECT duplicate.id, min(kept.id)
+FROM divisions duplicate JOIN divisions kept ON kept.name = duplicate.name AND kept.id < duplicate.id
+GROUP BY duplicate.id;
+UPDATE teams SET division_id = (SELECT kept_id FROM duplicates WHERE id = teams.division_id)
+WHERE division_id IN (SELECT id FROM duplicates);
+DELETE FROM divisions WHERE id IN (SELECT id FROM duplicates);
+DELETE FROM duplicates;
+
+INSERT INTO duplicates (id, kept_id)
+SELECT duplicate.id, min(kept.id)
+FROM teams duplicate JOIN teams kept ON kept.division_id = duplicate.division_id AND kept.name = duplicate.name AND kept.id < duplicate.id
+GROUP BY duplicate.id;
+UPDATE games SET home_team_id = (SELECT kept_id FROM duplicates WHERE id = games.home_team_id)
+WHERE home_team_id IN (SELECT id FROM duplicates);
+UPDATE games SET away_team_id = (SELECT kept_id FROM duplicates WHERE id = games.away_team_id)
+WHERE away_team_id IN (SELECT id FROM duplicates);
+-- ratings of the kept teams were computed without games of their duplicates
+DELETE FROM team_ratings WHERE team_id IN (SELECT id FROM duplicates) OR team_id IN (SELECT kept_id FROM duplicates);
+DELETE FROM teams WHERE id IN (SELECT id FROM duplicates);
+DELETE FROM duplicates;
+
+INSERT INTO duplicates (id, kept_id)
+SELECT duplicate.id, min(kept.id)
+FROM games duplicate JOIN games kept
+    ON kept.home_team_id = duplicate.home_team_id
+    AND kept.away_team_id = duplicate.away_team_id
+    AND kept.played_at = duplicate.played_at
+    AND kept.id < duplicate.id
+GROUP BY duplicate.id;
+-- bets which become duplicated as well are removed together with other duplicated bets by V8
+UPDATE bets SET game_id = (SELECT kept_id FROM duplicates WHERE id = bets.game_id)
+WHERE game_id IN (SELECT id FROM duplicates);
+-- ratings of the teams were computed with the duplicated games counted twice
+DELETE FROM team_ratings
+WHERE team_id IN (SELECT home_team_id FROM games WHERE id IN (SELECT id FROM duplicates))
+    OR team_id IN (SELECT away_team_id FROM games WHERE id IN (SELECT id FROM duplicates));
+DELETE FROM games WHERE id IN (SELECT id FROM duplicates);
+DROP TABLE duplicates;
+
+-- per team, date ordered access paths used by team raters and bulk loading
+CREATE INDEX games_home_team_index ON games (home_team_id, played_at);
+CREATE INDEX games_away_team_index ON games (away_team_id, played_at);
+
+-- single game per teams and date, makes loads idempotent
+CREATE UNIQUE INDEX games_key_index ON games (home_team_id, away_team_id, played_at);
+ALTER TABLE games DROP INDEX games_load_index;
+
+CREATE UNIQUE INDEX divisions_name_index ON divisions (name);
+CREATE UNIQUE INDEX teams_key_index ON teams (division_id, name);
@@ -0,0 +1,28 @@
+-- games from the perspective of each of the playing teams, clustered by team and date
+CREATE TABLE team_game_results (
+    team_id bigint not null,
+    played_at date not null,
+    game_id bigint not null,
+    is_home boolean,
+    scored tinyint,
+    conceded tinyint,
+    -- W, D or L from the team perspective, NULL when the score is unknown
+    result varchar(1),
+    primary key (team_id, played_at, game_id));
+
+INSERT INTO team_game_results (team_id, played_at, game_id, is_home, scored, conceded, result)
+SELECT home_team_id, played_at, id, TRUE, full_time_home_team_goals, full_time_away_team_goals,
+    CASE
+        WHEN full_time_home_team_goals > full_time_away_team_goals THEN 'W'
+        WHEN full_time_home_team_goals < full_time_away_team_goals THEN 'L'
+        WHEN full_time_home_team_goals = full_time_away_team_goals THEN 'D'
+    END
+FROM games
+UNION ALL
+SELECT away_team_id, played_at, id, FALSE, full_time_away_team_goals, full_time_home_team_goals,
+    CASE
+        WHEN full_time_away_team_goals > full_time_home_team_goals THEN 'W'
+        WHEN full_time_away_team_goals < full_time_home_team_goals THEN 'L'
+        WHEN full_time_away_team_goals = full_time_home_team_goals THEN 'D'
+    END
+FROM games;
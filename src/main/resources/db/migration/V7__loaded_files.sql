@@ -0,0 +1,14 @@
+CREATE TABLE loaded_files (
+    id bigint auto_increment,
+    path varchar(255),
+    size bigint,
+    -- modification time in milliseconds since epoch
+    last_modified bigint,
+    -- sha-256 of the whole file
+    content_hash varchar(64),
+    -- number of csv rows which were loaded
+    rows_count int,
+    loaded_at timestamp,
+    primary key (id));
+
+CREATE UNIQUE INDEX loaded_files_path_index ON loaded_files (path);
@@ -0,0 +1,26 @@
+-- duplicated bets could have been loaded by concurrent writers or moved to a single game when duplicated
+-- games were removed by V5, the latest loaded odds are kept
+CREATE TABLE duplicated_bets (
+    id bigint,
+    primary key (id));
+
+INSERT INTO duplicated_bets (id)
+SELECT DISTINCT duplicate.id
+FROM bets duplicate JOIN bets kept
+    ON kept.game_id = duplicate.game_id
+    AND kept.bet_vendor_id = duplicate.bet_vendor_id
+    AND kept.bet_type_id = duplicate.bet_type_id
+    AND kept.id > duplicate.id;
+DELETE FROM bets WHERE id IN (SELECT id FROM duplicated_bets);
+DROP TABLE duplicated_bets;
+
+-- single odds per vendor and bet type of a game, so new odds can be upserted
+CREATE UNIQUE INDEX bets_key_index ON bets (game_id, bet_vendor_id, bet_type_id);
+ALTER TABLE bets DROP INDEX bets_by_game_index;
+
+-- feed of updated games, consumers remember the id of the last change they have seen
+CREATE TABLE game_changes (
+    id bigint auto_increment,
+    game_id bigint,
+    changed_at timestamp,
+    primary key (id));
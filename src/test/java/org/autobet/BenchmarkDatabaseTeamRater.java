@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.autobet;
+
+import org.autobet.ai.CachingTeamRater;
+import org.autobet.ai.GoalBasedTeamRater;
+import org.autobet.ai.TeamRater;
+import org.autobet.benchmark.BenchmarkGamesSnapshot;
+import org.autobet.ioc.DaggerMainComponent;
+import org.autobet.ioc.DataSourceModule;
+import org.autobet.ioc.DatabaseConfig;
+import org.autobet.ioc.DatabaseConnectionModule.DatabaseConnection;
+import org.autobet.ioc.MainComponent;
+import org.autobet.model.Game;
+import org.autobet.model.TeamRating;
+import org.javalite.activejdbc.Base;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rates all games of a season stored in an embedded database, with the ratings cached in the database
+ * (cold or already computed) or computed directly from the team game results.
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.SingleShotTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BenchmarkDatabaseTeamRater
+{
+    @Param({"direct", "cold_cache", "warm_cache"})
+    private String rater;
+
+    private MainComponent mainComponent;
+    private DatabaseConnection connection;
+    private List<Game> games;
+    private TeamRater teamRater;
+
+    @Setup
+    public void setup()
+    {
+        mainComponent = DaggerMainComponent.builder()
+                .dataSourceModule(new DataSourceModule(DatabaseConfig.embedded("benchmark_rater")))
+                .build();
+        connection = mainComponent.connectToDatabase();
+        BulkLoader loader = new BulkLoader();
+        for (String csvFile : BenchmarkGamesSnapshot.listCsvFiles(BenchmarkGamesSnapshot.SEASON_DIRECTORY)) {
+            loader.load(csvFile);
+        }
+        games = Game.findAll().orderBy("id").load();
+        teamRater = rater.equals("direct") ? new GoalBasedTeamRater() : new CachingTeamRater(new GoalBasedTeamRater());
+        if (rater.equals("warm_cache")) {
+            rateAllGames();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache()
+    {
+        if (rater.equals("cold_cache")) {
+            TeamRating.deleteAll();
+        }
+    }
+
+    @TearDown
+    public void dropDatabase()
+            throws IOException
+    {
+        Base.exec("DROP ALL OBJECTS");
+        connection.close();
+        ((Closeable) mainComponent.getDataSource()).close();
+    }
+
+    @Benchmark
+    public long rateAllGames()
+    {
+        long sum = 0;
+        for (Game game : games) {
+            Optional<Integer> rate = teamRater.rate(game);
+            if (rate.isPresent()) {
+                sum += rate.get();
+            }
+        }
+        return sum;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkDatabaseTeamRater.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
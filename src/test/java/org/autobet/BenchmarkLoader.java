@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet;
+
+import org.autobet.benchmark.BenchmarkGamesSnapshot;
+import org.autobet.ioc.DaggerMainComponent;
+import org.autobet.ioc.DataSourceModule;
+import org.autobet.ioc.DatabaseConfig;
+import org.autobet.ioc.DatabaseConnectionModule.DatabaseConnection;
+import org.autobet.ioc.MainComponent;
+import org.javalite.activejdbc.Base;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a season into a fresh embedded database. It is placed next to the loaders, as they are not public.
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.SingleShotTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BenchmarkLoader
+{
+    @Param({"row", "bulk", "parallel"})
+    private String loader;
+
+    private int databasesCount;
+    private List<String> csvFiles;
+    private MainComponent mainComponent;
+    private DatabaseConnection connection;
+
+    @Setup
+    public void setup()
+    {
+        csvFiles = BenchmarkGamesSnapshot.listCsvFiles(BenchmarkGamesSnapshot.SEASON_DIRECTORY);
+    }
+
+    @Setup(Level.Invocation)
+    public void createDatabase()
+    {
+        mainComponent = DaggerMainComponent.builder()
+                .dataSourceModule(new DataSourceModule(DatabaseConfig.embedded("benchmark" + databasesCount++)))
+                .build();
+        connection = mainComponent.connectToDatabase();
+    }
+
+    @TearDown(Level.Invocation)
+    public void dropDatabase()
+            throws IOException
+    {
+        Base.exec("DROP ALL OBJECTS");
+        connection.close();
+        ((Closeable) mainComponent.getDataSource()).close();
+    }
+
+    @Benchmark
+    public int loadSeason()
+    {
+        switch (loader) {
+            case "row":
+                return load(new Loader());
+            case "bulk":
+                return load(new BulkLoader());
+            case "parallel":
+                return new ParallelLoader(mainComponent.getDataSource(), Runtime.getRuntime().availableProcessors(), 4).load(csvFiles);
+            default:
+                throw new IllegalArgumentException("Unknown loader: " + loader);
+        }
+    }
+
+    private int load(CsvLoader csvLoader)
+    {
+        int loaded = 0;
+        for (String csvFile : csvFiles) {
+            loaded += csvLoader.load(csvFile);
+        }
+        return loaded;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkLoader.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet;
+
+import com.google.common.collect.ImmutableList;
+import org.autobet.ai.GoalBasedTeamRater;
+import org.autobet.ai.TeamRaterStatsCollector;
+import org.autobet.ai.TeamRaterStatsCollector.TeamRaterStats;
+import org.autobet.model.Bet;
+import org.autobet.model.Division;
+import org.autobet.model.Game;
+import org.autobet.model.GameChange;
+import org.autobet.model.KeyValueStoreEntry;
+import org.autobet.model.Team;
+import org.autobet.model.TeamGameResult;
+import org.javalite.activejdbc.Base;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.autobet.ImmutableCollectors.toImmutableList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BulkLoaderTest
+{
+    @Rule
+    public TemporaryDatabase temporaryDatabase = TemporaryDatabase.empty();
+
+    @Test
+    public void load()
+    {
+        BulkLoader loader = new BulkLoader();
+        assertEquals(loader.load("data/www.football-data.co.uk/mmz4281/0001/B1.csv"), 1 + 18 + 306 + 3600);
+        assertEquals(loader.load("data/www.football-data.co.uk/mmz4281/0001/B1.csv"), 0);
+        assertEquals(new BulkLoader().load("data/www.football-data.co.uk/mmz4281/0001/B1.csv"), 0);
+
+        assertEquals((long) Division.count(), 1);
+        Division b1 = Division.findById(1);
+        assertEquals(b1.get("name"), "B1");
+
+        assertEquals((long) Team.count(), 18);
+        Team anderlecht = Team.findById(18);
+        assertEquals(anderlecht.get("division_id"), b1.get("id"));
+        assertEquals(anderlecht.get("name"), "Anderlecht");
+
+        assertEquals((long) Game.count(), 306);
+        Game game = Game.findById(1);
+        assertEquals(game.get("home_team_id"), 1L);
+        assertEquals(game.get("away_team_id"), 2L);
+        assertEquals(game.getInteger("full_time_home_team_goals"), (Integer) 1);
+        assertEquals(game.getInteger("full_time_away_team_goals"), (Integer) 2);
+        assertEquals(game.get("full_time_result"), "A");
+        assertEquals(game.get("played_at"), new Date(new GregorianCalendar(2000, 7, 12).getTime().getTime()));
+
+        assertEquals((long) Bet.count(), 3600);
+        Bet bet = Bet.findById(1);
+        assertEquals(bet.get("bet_vendor_id"), 4L);
+        assertEquals(bet.get("bet_type_id"), 1L);
+        assertEquals(bet.get("game_id"), 1L);
+        assertEquals(bet.get("odds"), new BigDecimal("2.2000"));
+
+        assertEquals((long) TeamGameResult.count(), 2 * 306);
+    }
+
+    @Test
+    public void loadAfterLoader()
+    {
+        new Loader().load("data/www.football-data.co.uk/mmz4281/0001/B1.csv");
+        assertEquals(new BulkLoader().load("data/www.football-data.co.uk/mmz4281/0001/B1.csv"), 0);
+        assertEquals((long) Game.count(), 306);
+        assertEquals((long) Bet.count(), 3600);
+    }
+
+    @Test
+    public void upsert()
+    {
+        List<Map<String, String>> lines = BulkLoader.read("data/www.football-data.co.uk/mmz4281/0001/B1.csv");
+        List<Map<String, String>> fixtures = fixtures(lines, 300);
+
+        BulkLoader loader = new BulkLoader(true);
+        loader.load(fixtures);
+        assertEquals((long) Game.count(), 306);
+        assertEquals((long) Bet.count(), 3600 - 6 * 3);
+        assertEquals((long) Game.count("full_time_result IS NULL"), 6);
+        assertEquals((long) TeamGameResult.count("result IS NULL"), 2 * 6);
+        assertEquals(GameChange.findLastId(), 0);
+
+        long lastChange = GameChange.findLastId();
+        assertEquals(loader.load(fixtures), 0);
+        assertEquals(GameChange.findLastId(), lastChange);
+
+        assertEquals(loader.load(lines), 6 * 3 + 6);
+        assertEquals((long) Game.count(), 306);
+        assertEquals((long) Bet.count(), 3600);
+        assertEquals((long) Game.count("full_time_result IS NULL"), 0);
+        assertEquals(GameChange.findChangedGames(lastChange), Game.findAll().orderBy("id").stream()
+                .skip(300)
+                .map(game -> game.getLongId())
+                .collect(toImmutableList()));
+
+        String query = "SELECT * FROM team_game_results ORDER BY team_id, played_at, game_id";
+        List<Map> upserted = Base.findAll(query);
+        TeamGameResult.rebuild();
+        assertEquals(Base.findAll(query), upserted);
+
+        // stored values are not overridden by the missing ones
+        assertEquals(loader.load(fixtures), 0);
+        assertEquals((long) Game.count("full_time_result IS NULL"), 0);
+    }
+
+    @Test
+    public void upsertedGamesAreProcessedAgain()
+    {
+        List<Map<String, String>> lines = BulkLoader.read("data/www.football-data.co.uk/mmz4281/0001/B1.csv");
+        BulkLoader loader = new BulkLoader(true);
+        loader.load(fixtures(lines, 250));
+        TeamRaterStats fixturesStats = collectStats();
+
+        loader.load(lines);
+        TeamRaterStats stats = collectStats();
+        assertTrue(stats.getCount() > fixturesStats.getCount());
+
+        KeyValueStoreEntry.deleteAll();
+        TeamRaterStats expectedStats = collectStats();
+        assertEquals(stats.getCount(), expectedStats.getCount());
+        assertEquals(stats.getHomeStats(), expectedStats.getHomeStats());
+    }
+
+    @Test
+    public void rebuildTeamGameResults()
+    {
+        new BulkLoader().load("data/www.football-data.co.uk/mmz4281/0001/B1.csv");
+        String query = "SELECT * FROM team_game_results ORDER BY team_id, played_at, game_id";
+        List<Map> loaded = Base.findAll(query);
+
+        assertEquals(TeamGameResult.rebuild(), 2 * 306);
+        assertEquals(Base.findAll(query), loaded);
+    }
+
+    /**
+     * @return copy of the lines in which results and odds of games starting from the given line are not known yet
+     */
+    private static List<Map<String, String>> fixtures(List<Map<String, String>> lines, int firstFixture)
+    {
+        List<Map<String, String>> fixtures = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            Map<String, String> fixture = new HashMap<>(lines.get(i));
+            if (i >= firstFixture) {
+                fixture.keySet().removeAll(ImmutableList.of("fthg", "ftag", "ftr", "hthg", "htag", "htr", "gbh", "gbd", "gba"));
+            }
+            fixtures.add(fixture);
+        }
+        return fixtures;
+    }
+
+    private TeamRaterStats collectStats()
+    {
+        TeamRaterStatsCollector statsCollector = temporaryDatabase.getComponent().getStatsCollector();
+        return statsCollector.collect(new GoalBasedTeamRater(), Optional.empty(), Optional.empty());
+    }
+}
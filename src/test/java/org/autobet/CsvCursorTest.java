@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CsvCursorTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void readExampleFile()
+    {
+        int linesCount = 0;
+        try (CsvCursor cursor = new CsvCursor("data/www.football-data.co.uk/mmz4281/0001/B1.csv")) {
+            int division = cursor.getColumn("div");
+            int date = cursor.getColumn("date");
+            int homeGoals = cursor.getColumn("fthg");
+            int odds = cursor.getColumn("b365h");
+            assertEquals(CsvCursor.MISSING_COLUMN, cursor.getColumn("unknown"));
+            while (cursor.advance()) {
+                assertEquals("B1", cursor.getString(division));
+                assertTrue(cursor.getEpochDay(date) >= LocalDate.of(2000, 8, 1).toEpochDay());
+                assertEquals(Integer.parseInt(cursor.getString(homeGoals)), cursor.getInt(homeGoals));
+                if (!cursor.isEmpty(odds)) {
+                    assertEquals(Double.parseDouble(cursor.getString(odds)), cursor.getDouble(odds), 0);
+                }
+                linesCount++;
+            }
+        }
+        assertEquals(306, linesCount);
+    }
+
+    @Test
+    public void readCells()
+            throws IOException
+    {
+        String file = write("Div,Date,Name,Odds\r\n" +
+                "B1,12/08/00,\"Royal, Antwerp\",1.5\r\n" +
+                "B1,01/02/1999,\"say \"\"hi\"\"\",-0.0625\r\n" +
+                ",,\n" +
+                "\n" +
+                "B1,31/12/93,x,12345678901234567890");
+        try (CsvCursor cursor = new CsvCursor(file)) {
+            assertEquals(ImmutableList.of("div", "date", "name", "odds"), cursor.getHeader());
+
+            assertTrue(cursor.advance());
+            assertEquals(4, cursor.getCellsCount());
+            assertEquals(LocalDate.of(2000, 8, 12).toEpochDay(), cursor.getEpochDay(1));
+            assertEquals("Royal, Antwerp", cursor.getString(2));
+            assertEquals(1.5, cursor.getDouble(3), 0);
+
+            assertTrue(cursor.advance());
+            assertEquals(LocalDate.of(1999, 2, 1).toEpochDay(), cursor.getEpochDay(1));
+            assertEquals("say \"hi\"", cursor.getString(2));
+            assertEquals(-0.0625, cursor.getDouble(3), 0);
+
+            assertTrue(cursor.advance());
+            assertEquals(3, cursor.getCellsCount());
+            assertTrue(cursor.isEmpty(0));
+            assertTrue(cursor.isEmpty(3));
+            assertNull(cursor.getString(3));
+
+            assertTrue(cursor.advance());
+            assertEquals(1, cursor.getCellsCount());
+            assertTrue(cursor.isEmpty(0));
+
+            assertTrue(cursor.advance());
+            assertEquals(LocalDate.of(1993, 12, 31).toEpochDay(), cursor.getEpochDay(1));
+            assertEquals(12345678901234567890d, cursor.getDouble(3), 0);
+
+            assertFalse(cursor.advance());
+        }
+    }
+
+    @Test
+    public void readLinesLongerThanBuffer()
+            throws IOException
+    {
+        StringBuilder content = new StringBuilder("a,b\n");
+        String longCell = Strings.repeat("x", 100_000);
+        for (int i = 0; i < 10; i++) {
+            content.append(i).append(',').append(longCell).append('\n');
+        }
+        try (CsvCursor cursor = new CsvCursor(write(content.toString()))) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(cursor.advance());
+                assertEquals(i, cursor.getInt(0));
+                assertEquals(longCell, cursor.getString(1));
+            }
+            assertFalse(cursor.advance());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidDate()
+            throws IOException
+    {
+        try (CsvCursor cursor = new CsvCursor(write("date\n31/02/00\n"))) {
+            assertTrue(cursor.advance());
+            cursor.getEpochDay(0);
+        }
+    }
+
+    private String write(String content)
+            throws IOException
+    {
+        File file = temporaryFolder.newFile();
+        Files.write(content, file, UTF_8);
+        return file.getPath();
+    }
+}
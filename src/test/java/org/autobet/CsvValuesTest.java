@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.autobet;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.TimeZone;
+
+import static org.autobet.CsvValues.parseDecimal;
+import static org.autobet.CsvValues.parseEpochDay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CsvValuesTest
+{
+    @Test
+    public void parseDates()
+            throws ParseException
+    {
+        assertEquals(parseEpochDay("12/08/00"), LocalDate.of(2000, 8, 12).toEpochDay());
+        assertEquals(parseEpochDay("01/02/1999"), LocalDate.of(1999, 2, 1).toEpochDay());
+        assertEquals(parseEpochDay("31/12/93"), LocalDate.of(1993, 12, 31).toEpochDay());
+        assertEquals(parseEpochDay("29/02/16"), LocalDate.of(2016, 2, 29).toEpochDay());
+        assertEquals(parseEpochDay("01/01/1970"), LocalDate.of(1970, 1, 1).toEpochDay());
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yy");
+        dateFormat.setTimeZone(TimeZone.getTimeZone(ZoneOffset.UTC));
+        for (LocalDate date = LocalDate.of(1950, 1, 1); date.getYear() < 2040; date = date.plusDays(1)) {
+            String value = String.format("%02d/%02d/%02d", date.getDayOfMonth(), date.getMonthValue(), date.getYear() % 100);
+            long expected = dateFormat.parse(value).getTime() / (24 * 60 * 60 * 1000);
+            assertEquals(value, parseEpochDay(value), expected);
+            assertEquals(parseEpochDay(String.format("%02d/%02d/%04d", date.getDayOfMonth(), date.getMonthValue(), date.getYear())), date.toEpochDay());
+        }
+
+        assertInvalidDate("");
+        assertInvalidDate("12/08/0");
+        assertInvalidDate("12-08-00");
+        assertInvalidDate("1a/08/00");
+        assertInvalidDate("32/01/00");
+        assertInvalidDate("29/02/1900");
+        assertInvalidDate("01/13/00");
+        assertInvalidDate("00/01/00");
+    }
+
+    @Test
+    public void parseDecimals()
+    {
+        assertEquals(parseDecimal("2.2", 4), 22000);
+        assertEquals(parseDecimal("2.25", 4), 22500);
+        assertEquals(parseDecimal("3", 4), 30000);
+        assertEquals(parseDecimal("3.", 4), 30000);
+        assertEquals(parseDecimal(".5", 4), 5000);
+        assertEquals(parseDecimal("-0.0625", 4), -625);
+        assertEquals(parseDecimal("+0.0625", 4), 625);
+        assertEquals(parseDecimal("1.33333", 4), 13333);
+        assertEquals(parseDecimal("1.66666", 4), 16667);
+        assertEquals(parseDecimal("-1.66665", 4), -16667);
+        assertEquals(parseDecimal("123", 0), 123);
+
+        for (String value : new String[] {"1.05", "2.875", "13", "0.00005", "1001.99995", "7.123449"}) {
+            assertEquals(value, parseDecimal(value, 4), new BigDecimal(value).setScale(4, RoundingMode.HALF_UP).unscaledValue().longValue());
+        }
+
+        assertInvalidDecimal("");
+        assertInvalidDecimal("-");
+        assertInvalidDecimal(".");
+        assertInvalidDecimal("1.2.3");
+        assertInvalidDecimal("1e5");
+        assertInvalidDecimal("1,5");
+        assertInvalidDecimal("NaN");
+        assertInvalidDecimal("12345678901234567890");
+    }
+
+    private static void assertInvalidDate(String value)
+    {
+        try {
+            parseEpochDay(value);
+            fail("Expected invalid date: " + value);
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void assertInvalidDecimal(String value)
+    {
+        try {
+            parseDecimal(value, 4);
+            fail("Expected invalid decimal: " + value);
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.autobet.model.Game;
+import org.javalite.activejdbc.Base;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalLoaderTest
+{
+    private static final String SEASON_0001 = "data/www.football-data.co.uk/mmz4281/0001/B1.csv";
+
+    @Rule
+    public TemporaryDatabase temporaryDatabase = TemporaryDatabase.empty();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void load()
+            throws IOException
+    {
+        List<String> lines = Files.readAllLines(Paths.get(SEASON_0001), UTF_8);
+        String header = lines.get(0);
+        List<String> rows = lines.subList(1, lines.size());
+        File csvFile = temporaryFolder.newFile("B1.csv");
+
+        write(csvFile, header, rows.subList(0, 100));
+        assertTrue(new IncrementalLoader(new BulkLoader(), LoadedFiles.read()).load(csvFile.getPath()) > 0);
+        assertEquals((long) Game.count(), 100);
+
+        // unchanged file is skipped
+        deleteGames();
+        assertEquals(new IncrementalLoader(new BulkLoader(), LoadedFiles.read()).load(csvFile.getPath()), 0);
+        assertEquals((long) Game.count(), 0);
+
+        // only appended rows are loaded
+        append(csvFile, rows.subList(100, rows.size()));
+        new IncrementalLoader(new Loader(), LoadedFiles.read()).load(csvFile.getPath());
+        assertEquals((long) Game.count(), rows.size() - 100);
+
+        // modified file of the same size is loaded whole
+        write(csvFile, header, Lists.reverse(rows));
+        assertTrue(csvFile.setLastModified(csvFile.lastModified() + 10_000));
+        new IncrementalLoader(new BulkLoader(), LoadedFiles.read()).load(csvFile.getPath());
+        assertEquals((long) Game.count(), rows.size());
+
+        deleteGames();
+        assertEquals(new IncrementalLoader(new BulkLoader(), LoadedFiles.read()).load(csvFile.getPath()), 0);
+        new IncrementalLoader(new BulkLoader(), LoadedFiles.none()).load(csvFile.getPath());
+        assertEquals((long) Game.count(), rows.size());
+    }
+
+    @Test
+    public void parallelLoad()
+    {
+        ParallelLoader loader = new ParallelLoader(temporaryDatabase.getComponent().getDataSource(), 2, 2);
+        assertTrue(loader.load(ImmutableList.of(SEASON_0001), LoadedFiles.read()) > 0);
+        assertEquals((long) Game.count(), 306);
+
+        deleteGames();
+        assertEquals(loader.load(ImmutableList.of(SEASON_0001), LoadedFiles.read()), 0);
+        assertEquals(new IncrementalLoader(new BulkLoader(), LoadedFiles.read()).load(SEASON_0001), 0);
+        assertEquals((long) Game.count(), 0);
+    }
+
+    private static void deleteGames()
+    {
+        Base.exec("DELETE FROM bets");
+        Base.exec("DELETE FROM team_game_results");
+        Base.exec("DELETE FROM games");
+    }
+
+    private static void write(File file, String header, List<String> rows)
+            throws IOException
+    {
+        Files.write(file.toPath(), ImmutableList.of(header), UTF_8);
+        append(file, rows);
+    }
+
+    private static void append(File file, List<String> rows)
+            throws IOException
+    {
+        Files.write(file.toPath(), rows, UTF_8, StandardOpenOption.APPEND);
+    }
+}
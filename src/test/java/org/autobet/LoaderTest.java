@@ -32,6 +32,7 @@ import org.autobet.model.Bet;
 import org.autobet.model.Division;
 import org.autobet.model.Game;
 import org.autobet.model.Team;
+import org.autobet.model.TeamGameResult;
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -69,11 +70,11 @@ public class LoaderTest
         assertEquals(game.get("id"), 1L);
         assertEquals(game.get("home_team_id"), 1L);
         assertEquals(game.get("away_team_id"), 2L);
-        assertEquals(game.get("full_time_home_team_goals"), 1);
-        assertEquals(game.get("full_time_away_team_goals"), 2);
+        assertEquals(game.getInteger("full_time_home_team_goals"), (Integer) 1);
+        assertEquals(game.getInteger("full_time_away_team_goals"), (Integer) 2);
         assertEquals(game.get("full_time_result"), "A");
-        assertEquals(game.get("half_time_home_team_goals"), 1);
-        assertEquals(game.get("half_time_away_team_goals"), 1);
+        assertEquals(game.getInteger("half_time_home_team_goals"), (Integer) 1);
+        assertEquals(game.getInteger("half_time_away_team_goals"), (Integer) 1);
         assertEquals(game.get("half_time_result"), "D");
         assertEquals(game.get("played_at"), new Date(new GregorianCalendar(2000, 7, 12).getTime().getTime()));
 
@@ -84,5 +85,18 @@ public class LoaderTest
         assertEquals(bet.get("bet_type_id"), 1L);
         assertEquals(bet.get("game_id"), 1L);
         assertEquals(bet.get("odds"), new BigDecimal("2.2000"));
+
+        assertEquals((long) TeamGameResult.count(), 2 * 306);
+        TeamGameResult home = TeamGameResult.findFirst("game_id = ? AND team_id = ?", 1, 1);
+        assertEquals(home.get("played_at"), game.get("played_at"));
+        assertEquals(home.getBoolean("is_home"), true);
+        assertEquals(home.getInteger("scored"), (Integer) 1);
+        assertEquals(home.getInteger("conceded"), (Integer) 2);
+        assertEquals(home.get("result"), "L");
+        TeamGameResult away = TeamGameResult.findFirst("game_id = ? AND team_id = ?", 1, 2);
+        assertEquals(away.getBoolean("is_home"), false);
+        assertEquals(away.getInteger("scored"), (Integer) 2);
+        assertEquals(away.getInteger("conceded"), (Integer) 1);
+        assertEquals(away.get("result"), "W");
     }
 }
@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.autobet;
+
+import org.autobet.model.Bet;
+import org.autobet.model.Division;
+import org.autobet.model.Game;
+import org.autobet.model.Team;
+import org.autobet.model.TeamGameResult;
+import org.autobet.model.TeamRating;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.h2.jdbcx.JdbcDataSource;
+import org.javalite.activejdbc.Base;
+import org.javalite.activejdbc.cache.CacheEvent;
+import org.javalite.activejdbc.cache.QueryCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+
+public class MigrationTest
+{
+    private final JdbcDataSource dataSource = new JdbcDataSource();
+
+    @Before
+    public void setUp()
+    {
+        dataSource.setURL("jdbc:h2:mem:migration;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        Base.open(dataSource);
+        // cached models could come from another database used earlier in the same process
+        QueryCache.instance().getCacheManager().flush(CacheEvent.ALL);
+    }
+
+    @After
+    public void tearDown()
+    {
+        Base.exec("DROP ALL OBJECTS");
+        Base.close();
+    }
+
+    @Test
+    public void removeDuplicates()
+    {
+        migrate(MigrationVersion.fromVersion("4"));
+        // the same division loaded twice by concurrent writers, along with its teams and games
+        Base.exec("INSERT INTO divisions (id, name) VALUES (1, 'B1'), (2, 'B1')");
+        Base.exec("INSERT INTO teams (id, division_id, name) VALUES (1, 1, 'Beveren'), (2, 1, 'Charleroi'), (3, 2, 'Beveren'), (4, 2, 'Charleroi')");
+        Base.exec("INSERT INTO games (id, home_team_id, away_team_id, played_at, full_time_home_team_goals, full_time_away_team_goals) VALUES " +
+                "(1, 1, 2, '2000-08-12', 1, 2), (2, 3, 4, '2000-08-12', 1, 2), (3, 2, 1, '2001-01-20', 0, 0)");
+        Base.exec("INSERT INTO bets (id, bet_vendor_id, bet_type_id, game_id, odds) VALUES " +
+                "(1, 4, 1, 1, 2.2), (2, 4, 1, 2, 2.25), (3, 4, 2, 2, 2.5), (4, 4, 1, 3, 1.9)");
+        Base.exec("INSERT INTO team_ratings (rater, team_id, rated_at, rate) VALUES ('goal_based', 1, '2001-01-20', 1), ('goal_based', 3, '2001-01-20', 1)");
+
+        migrate(MigrationVersion.LATEST);
+        assertEquals((long) Division.count(), 1);
+        assertEquals((long) Team.count(), 2);
+        assertEquals((long) Game.count(), 2);
+        assertEquals((long) Game.count("home_team_id = 1 AND away_team_id = 2"), 1);
+        assertEquals((long) TeamGameResult.count(), 4);
+        assertEquals((long) TeamRating.count(), 0);
+
+        assertEquals((long) Bet.count(), 3);
+        assertEquals((long) Bet.count("game_id = 1"), 2);
+        assertEquals(Bet.findFirst("game_id = 1 AND bet_type_id = 1").getBigDecimal("odds"), new BigDecimal("2.2500"));
+    }
+
+    private void migrate(MigrationVersion target)
+    {
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        flyway.setTarget(target);
+        flyway.migrate();
+    }
+}
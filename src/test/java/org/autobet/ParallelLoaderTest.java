@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet;
+
+import com.google.common.collect.ImmutableList;
+import org.autobet.model.Bet;
+import org.autobet.model.Division;
+import org.autobet.model.Game;
+import org.autobet.model.Team;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelLoaderTest
+{
+    private static final String SEASON_0001 = "data/www.football-data.co.uk/mmz4281/0001/B1.csv";
+    private static final String SEASON_0102 = "data/www.football-data.co.uk/mmz4281/0102/B1.csv";
+
+    @Rule
+    public TemporaryDatabase temporaryDatabase = TemporaryDatabase.empty();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void load()
+    {
+        ParallelLoader loader = new ParallelLoader(temporaryDatabase.getComponent().getDataSource(), 2, 2);
+        assertEquals(loader.load(ImmutableList.of(SEASON_0001, SEASON_0102)), 1 + 20 + 612 + 7470);
+
+        assertEquals((long) Division.count(), 1);
+        assertEquals((long) Team.count(), 20);
+        assertEquals((long) Game.count(), 612);
+        assertEquals((long) Bet.count(), 7470);
+
+        assertEquals(loader.load(ImmutableList.of(SEASON_0001, SEASON_0102)), 0);
+        BulkLoader bulkLoader = new BulkLoader();
+        assertEquals(bulkLoader.load(SEASON_0001), 0);
+        assertEquals(bulkLoader.load(SEASON_0102), 0);
+    }
+
+    @Test
+    public void loadOverlappingFiles()
+            throws IOException
+    {
+        // like fixtures and results files of the same season, which contain the same games
+        List<String> csvFiles = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            File csvFile = temporaryFolder.newFile("B1_" + i + ".csv");
+            Files.copy(Paths.get(SEASON_0001), csvFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            csvFiles.add(csvFile.getPath());
+        }
+        ParallelLoader loader = new ParallelLoader(temporaryDatabase.getComponent().getDataSource(), 2, 4);
+        loader.load(csvFiles);
+
+        assertEquals((long) Team.count(), 18);
+        assertEquals((long) Game.count(), 306);
+        assertEquals((long) Bet.count(), 3600);
+        assertEquals(new BulkLoader().load(SEASON_0001), 0);
+    }
+}
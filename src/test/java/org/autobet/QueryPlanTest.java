@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet;
+
+import com.google.common.base.Throwables;
+import org.autobet.ai.GoalBasedTeamRater;
+import org.autobet.model.TeamGameResult;
+import org.javalite.activejdbc.Base;
+import org.javalite.activejdbc.DBException;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.join;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QueryPlanTest
+{
+    @ClassRule
+    public static final TemporaryDatabase temporaryDatabase = TemporaryDatabase.loaded();
+
+    private static final Date DATE = Date.valueOf("2001-01-01");
+
+    @Test
+    public void goalBasedTeamRater()
+    {
+        // results are clustered by the primary key on team and date
+        assertUsesIndex(explain(GoalBasedTeamRater.RATE_QUERY, 1, DATE, 6), "primary");
+    }
+
+    @Test
+    public void teamGameResultRefresh()
+    {
+        assertUsesIndex(explain(TeamGameResult.DELETE_QUERY, 1, DATE, 1), "primary");
+    }
+
+    @Test
+    public void loader()
+    {
+        assertUsesIndex(explain("SELECT * FROM divisions WHERE name = ?", "B1"), "divisions_name_index");
+        assertUsesIndex(explain("SELECT * FROM teams WHERE name = ? AND division_id = ?", "Anderlecht", 1), "teams_key_index");
+        assertUsesIndex(
+                explain("SELECT * FROM games WHERE home_team_id = ? AND away_team_id = ? AND played_at = ?", 1, 2, DATE),
+                "games_key_index",
+                "games_home_team_index");
+    }
+
+    @Test
+    public void bulkLoader()
+    {
+        assertUsesIndex(
+                explain("SELECT id, home_team_id, away_team_id, played_at FROM games WHERE home_team_id IN (?, ?) AND played_at BETWEEN ? AND ?", 1, 2, DATE, DATE),
+                "games_home_team_index",
+                "games_key_index");
+    }
+
+    @Test(expected = DBException.class)
+    public void duplicatedGame()
+    {
+        Map game = Base.findAll("SELECT home_team_id, away_team_id, played_at FROM games").get(0);
+        Base.exec(
+                "INSERT INTO games(home_team_id, away_team_id, played_at) VALUES (?, ?, ?)",
+                game.get("home_team_id"),
+                game.get("away_team_id"),
+                game.get("played_at"));
+    }
+
+    private static String explain(String query, Object... parameters)
+    {
+        // H2 returns a single textual plan, while MySQL returns a row per table with the used index in the key column
+        List<String> plan = new ArrayList<>();
+        try (PreparedStatement statement = Base.connection().prepareStatement("EXPLAIN " + query)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    for (int column = 1; column <= resultSet.getMetaData().getColumnCount(); column++) {
+                        plan.add(String.valueOf(resultSet.getObject(column)));
+                    }
+                }
+            }
+        }
+        catch (SQLException e) {
+            throw Throwables.propagate(e);
+        }
+        return join("\n", plan).toLowerCase();
+    }
+
+    private static void assertUsesIndex(String plan, String... indexes)
+    {
+        assertFalse("Unexpected table scan in plan:\n" + plan, plan.contains("tablescan"));
+        assertTrue(
+                "Expected any of " + Arrays.toString(indexes) + " to be used in plan:\n" + plan,
+                Arrays.stream(indexes).anyMatch(plan::contains));
+    }
+}
@@ -12,29 +12,17 @@
  * limitations under the License.
  */
 
-/*
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
 package org.autobet;
 
 import com.mysql.jdbc.jdbc2.optional.MysqlDataSource;
 import org.autobet.ioc.AIModule;
 import org.autobet.ioc.DaggerMainComponent;
 import org.autobet.ioc.DataSourceModule;
+import org.autobet.ioc.DatabaseConfig;
 import org.autobet.ioc.DatabaseConnectionModule;
 import org.autobet.ioc.MainComponent;
 import org.autobet.util.GamesProcessorDriver;
+import org.javalite.activejdbc.Base;
 import org.junit.rules.ExternalResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,13 +30,24 @@ import org.testcontainers.containers.MySQLContainer;
 
 import javax.sql.DataSource;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Database for a test, by default embedded H2 in MySQL mode. Set {@value #MYSQL_PROPERTY} system property
+ * to true to run tests against MySQL started with Docker instead.
+ */
 public class TemporaryDatabase
         extends ExternalResource
 {
+    public static final String MYSQL_PROPERTY = "autobet.test.mysql";
+
     private static final Logger log = LoggerFactory.getLogger(TemporaryDatabase.class);
+    private static final AtomicInteger databasesCount = new AtomicInteger();
 
-    private final MySQLContainer mySQLContainer = new MySQLContainer("kokosing/mysql:latest");
     private final boolean load;
+    private MySQLContainer mySQLContainer;
     private DatabaseConnectionModule.DatabaseConnection connection;
     private MainComponent mainComponent;
 
@@ -72,7 +71,6 @@ public class TemporaryDatabase
             throws Throwable
     {
         super.before();
-        mySQLContainer.start();
         mainComponent = DaggerMainComponent.builder()
                 .aIModule(new AIModule()
                 {
@@ -82,18 +80,8 @@ public class TemporaryDatabase
                         return new GamesProcessorDriver(dataSource, 1);
                     }
                 })
-                .dataSourceModule(new DataSourceModule()
-                {
-                    @Override
-                    public DataSource provideDataSource()
-                    {
-                        MysqlDataSource dataSource = new MysqlDataSource();
-                        dataSource.setURL(mySQLContainer.getJdbcUrl());
-                        dataSource.setUser(mySQLContainer.getUsername());
-                        dataSource.setPassword(mySQLContainer.getPassword());
-                        return dataSource;
-                    }
-                }).build();
+                .dataSourceModule(Boolean.getBoolean(MYSQL_PROPERTY) ? mySqlDataSourceModule() : embeddedDataSourceModule())
+                .build();
         connection = mainComponent.connectToDatabase();
 
         if (load) {
@@ -103,11 +91,50 @@ public class TemporaryDatabase
         }
     }
 
+    private DataSourceModule mySqlDataSourceModule()
+    {
+        mySQLContainer = new MySQLContainer("kokosing/mysql:latest");
+        mySQLContainer.start();
+        return new DataSourceModule()
+        {
+            @Override
+            public DataSource provideDataSource()
+            {
+                MysqlDataSource dataSource = new MysqlDataSource();
+                dataSource.setURL(mySQLContainer.getJdbcUrl());
+                dataSource.setUser(mySQLContainer.getUsername());
+                dataSource.setPassword(mySQLContainer.getPassword());
+                dataSource.setUseCursorFetch(true);
+                return dataSource;
+            }
+        };
+    }
+
+    private static DataSourceModule embeddedDataSourceModule()
+    {
+        return new DataSourceModule(DatabaseConfig.embedded("test" + databasesCount.incrementAndGet()));
+    }
+
     @Override
     public void after()
     {
+        if (mySQLContainer == null) {
+            // embedded database outlives its connections, so it has to be dropped explicitly
+            Base.exec("DROP ALL OBJECTS");
+        }
         connection.close();
-        mySQLContainer.stop();
+        DataSource dataSource = mainComponent.getDataSource();
+        if (dataSource instanceof Closeable) {
+            try {
+                ((Closeable) dataSource).close();
+            }
+            catch (IOException e) {
+                log.warn("Unable to close data source", e);
+            }
+        }
+        if (mySQLContainer != null) {
+            mySQLContainer.stop();
+        }
         super.after();
     }
 
@@ -14,13 +14,20 @@
 
 package org.autobet.ai;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import org.autobet.TemporaryDatabase;
 import org.autobet.ai.TeamRaterStatsCollector.TeamRaterStats;
+import org.autobet.model.Game;
 import org.autobet.model.Team;
+import org.autobet.model.TeamRating;
+import org.autobet.util.GamesSnapshot;
 import org.junit.ClassRule;
 import org.junit.Test;
 
 import java.sql.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
@@ -48,6 +55,46 @@ public class AITest
         assertTrue(evaluation.getResult() < 100);
     }
 
+    @Test
+    public void evaluateManyPlayers()
+    {
+        GamesSnapshot snapshot = GamesSnapshot.load();
+        PlayerEvaluator evaluator = temporaryDatabase.getComponent().getPlayerEvaluator();
+        TeamRaterStatsCollector statsCollector = temporaryDatabase.getComponent().getStatsCollector();
+        GoalBasedTeamRater teamRater = new GoalBasedTeamRater();
+        TeamRaterStats raterStats = statsCollector.collect(teamRater, snapshot, Optional.empty(), Optional.empty());
+        Player lowBetPlayer = new LowBetPlayer();
+        Player chancesPlayer = new ChancesApproximationBasedPlayer(new TeamRatersStatsApproximation(raterStats), teamRater);
+
+        Map<String, PlayerEvaluator.Statistics> evaluations = evaluator.evaluate(
+                ImmutableList.of(lowBetPlayer, chancesPlayer),
+                Optional.of(200),
+                Optional.empty());
+        assertEquals(evaluations.keySet(), ImmutableSet.of(lowBetPlayer.getName(), chancesPlayer.getName()));
+        for (Player player : ImmutableList.of(lowBetPlayer, chancesPlayer)) {
+            PlayerEvaluator.Statistics expected = evaluator.evaluate(player, snapshot, Optional.of(200), Optional.empty());
+            PlayerEvaluator.Statistics actual = evaluations.get(player.getName());
+            assertEquals(actual.getResult(), expected.getResult(), 0.001);
+            assertEquals(actual.getBetsCount(), expected.getBetsCount());
+            assertEquals(actual.getPlayedBetsCount(), expected.getPlayedBetsCount());
+            assertEquals(actual.getWinningBetsCount(), expected.getWinningBetsCount());
+        }
+    }
+
+    @Test
+    public void playersStatisticsStorageKey()
+    {
+        ImmutableList.Builder<PlayerEvaluator.Statistics> statistics = ImmutableList.builder();
+        for (int i = 0; i < 20; i++) {
+            statistics.add(new PlayerEvaluator.Statistics("chances_approximation_based_player_" + i, 0, 0, 0, 0));
+        }
+        String storageKey = new PlayerEvaluator.PlayersStatistics(statistics.build()).getStorageKey();
+
+        // must fit the key column together with the prefixes of the games processor driver keys
+        assertTrue(("watermark_" + storageKey).length() <= 128);
+        assertEquals(new PlayerEvaluator.PlayersStatistics(statistics.build().reverse()).getStorageKey(), storageKey);
+    }
+
     private PlayerEvaluator.Statistics evaluate(Player player)
     {
         PlayerEvaluator evaluator = temporaryDatabase.getComponent().getPlayerEvaluator();
@@ -67,6 +114,61 @@ public class AITest
         assertEquals((int) rating.get(), -3);
     }
 
+    @Test
+    public void cachingTeamRater()
+    {
+        TeamRater rater = new GoalBasedTeamRater();
+        TeamRater cachingRater = new CachingTeamRater(rater);
+
+        Team team = (Team) Team.findAll().get(0);
+        Date beforeSeason = Date.valueOf("2000-01-01");
+        Date endOfYear = Date.valueOf("2000-12-31");
+        assertFalse(cachingRater.rate(team, beforeSeason).isPresent());
+        assertEquals(cachingRater.rate(team, endOfYear), rater.rate(team, endOfYear));
+        assertTrue(TeamRating.find("goal_based_v1", team.getLongId(), beforeSeason).isPresent());
+        assertTrue(TeamRating.find("goal_based_v1", team.getLongId(), endOfYear).isPresent());
+        assertEquals(cachingRater.rate(team, endOfYear), rater.rate(team, endOfYear));
+
+        TeamRating.invalidate(team.getLongId(), Date.valueOf("2000-12-01"));
+        assertTrue(TeamRating.find("goal_based_v1", team.getLongId(), beforeSeason).isPresent());
+        assertFalse(TeamRating.find("goal_based_v1", team.getLongId(), endOfYear).isPresent());
+    }
+
+    @Test
+    public void inMemoryGoalBasedTeamRater()
+    {
+        GamesSnapshot snapshot = GamesSnapshot.load();
+        for (int gamesCount : new int[] {1, 3, 6}) {
+            GoalBasedTeamRater rater = new GoalBasedTeamRater(gamesCount);
+            int ratedGames = 0;
+            for (int game = 0; game < snapshot.getGamesCount(); game++) {
+                Optional<Integer> expected = rater.rate((Game) Game.findById(snapshot.getGameId(game)));
+                assertEquals(rater.rate(snapshot, game), expected);
+                if (expected.isPresent()) {
+                    ratedGames++;
+                }
+            }
+            assertTrue(ratedGames > 0);
+        }
+    }
+
+    @Test
+    public void collectFirstGamesStats()
+    {
+        GoalBasedTeamRater teamRater = new GoalBasedTeamRater();
+        TeamRaterStatsCollector statsCollector = temporaryDatabase.getComponent().getStatsCollector();
+
+        TeamRaterStats raterStats = statsCollector.collectFirst(teamRater, 100);
+        assertEquals(raterStats.getStorageKey(), "goal_based_v1_first_100");
+        assertEquals(raterStats.getCount(), 46);
+
+        // stored statistics are loaded, further games are not collected
+        raterStats = statsCollector.collectFirst(teamRater, 100);
+        assertEquals(raterStats.getCount(), 46);
+        TeamRaterStats expected = statsCollector.collect(teamRater, GamesSnapshot.load(), Optional.of(300), Optional.empty());
+        assertEquals(statsCollector.collectFirst(teamRater, 300).getCount(), expected.getCount());
+    }
+
     @Test
     public void testStats()
     {
@@ -115,4 +217,71 @@ public class AITest
         assertEquals(playerStats.getPlayedBetsCount(), 187);
         assertEquals(playerStats.getWinningBetsCount(), 18);
     }
+
+    @Test
+    public void testSnapshot()
+    {
+        GamesSnapshot snapshot = GamesSnapshot.load();
+        assertEquals(snapshot.getGamesCount(), 306);
+        assertEquals(snapshot.getBetsCount(), 3600);
+
+        GoalBasedTeamRater teamRater = new GoalBasedTeamRater();
+        TeamRaterStatsCollector statsCollector = temporaryDatabase.getComponent().getStatsCollector();
+        TeamRaterStats raterStats = statsCollector.collect(teamRater, snapshot, Optional.of(100), Optional.empty());
+        assertEquals(raterStats.getCount(), 46);
+
+        raterStats = statsCollector.collect(teamRater, snapshot, Optional.empty(), Optional.empty());
+        assertEquals(raterStats.getCount(), 252);
+        assertEquals(raterStats.getHome(0).getCount(), 14);
+        assertEquals(raterStats.getHome(0).getWins(), 3);
+        assertEquals(raterStats.getHome(0).getLoses(), 6);
+        assertEquals(raterStats.getHome(0).getDraws(), 5);
+
+        TeamRatersStatsApproximation approximation = new TeamRatersStatsApproximation(raterStats);
+        ChancesApproximationBasedPlayer player = new ChancesApproximationBasedPlayer(approximation, teamRater);
+        PlayerEvaluator playerEvaluator = temporaryDatabase.getComponent().getPlayerEvaluator();
+        PlayerEvaluator.Statistics playerStats = playerEvaluator.evaluate(player, snapshot, Optional.empty(), Optional.empty());
+        assertEquals(playerStats.getResult(), -115.05, 0.01);
+        assertEquals(playerStats.getBetsCount(), 3600);
+        assertEquals(playerStats.getPlayedBetsCount(), 187);
+        assertEquals(playerStats.getWinningBetsCount(), 18);
+    }
+
+    @Test
+    public void tune()
+    {
+        GamesSnapshot snapshot = GamesSnapshot.load();
+        int trainingGames = snapshot.getGamesCount() / 2;
+        PlayerTuner tuner = temporaryDatabase.getComponent().getPlayerTuner();
+        List<PlayerTuner.Result> results = tuner.tune(
+                snapshot,
+                PlayerTuner.grid(ImmutableList.of(3, 6), ImmutableList.of(1, 2), ImmutableList.of(0.3, 0.5)),
+                trainingGames,
+                Optional.empty(),
+                Optional.empty());
+
+        assertEquals(results.size(), 8);
+        for (int i = 1; i < results.size(); i++) {
+            assertTrue(results.get(i - 1).getStatistics().getResult() >= results.get(i).getStatistics().getResult());
+        }
+        PlayerEvaluator.Statistics defaultStats = results.stream()
+                .filter(result -> result.getConfiguration().equals(new PlayerTuner.Configuration(6, 1, 0.3)))
+                .findFirst()
+                .get()
+                .getStatistics();
+
+        // configurations are evaluated only on games following the training ones
+        GoalBasedTeamRater teamRater = new GoalBasedTeamRater(6);
+        TeamRaterStats raterStats = temporaryDatabase.getComponent().getStatsCollector()
+                .collect(teamRater, snapshot, Optional.of(trainingGames), Optional.empty());
+        Player player = new ChancesApproximationBasedPlayer(new TeamRatersStatsApproximation(raterStats, 1), teamRater, 0.3);
+        PlayerEvaluator.Statistics expectedStats = temporaryDatabase.getComponent().getPlayerEvaluator()
+                .evaluate(ImmutableList.of(player), snapshot, trainingGames, Optional.empty(), Optional.empty())
+                .get(player.getName());
+        assertEquals(defaultStats.getResult(), expectedStats.getResult(), 0.001);
+        assertEquals(defaultStats.getPlayedBetsCount(), expectedStats.getPlayedBetsCount());
+        assertEquals(defaultStats.getWinningBetsCount(), expectedStats.getWinningBetsCount());
+        int lastGame = snapshot.getGamesCount() - 1;
+        assertEquals(defaultStats.getBetsCount(), snapshot.getBetsEnd(lastGame) - snapshot.getBetsStart(trainingGames));
+    }
 }
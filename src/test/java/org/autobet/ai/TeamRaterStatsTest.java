@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import org.autobet.ai.TeamRaterStatsCollector.TeamRaterStats;
+import org.autobet.util.BinaryInput;
+import org.autobet.util.BinaryOutput;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.autobet.ai.TeamRaterStatsCollector.GameResult.DRAW;
+import static org.autobet.ai.TeamRaterStatsCollector.GameResult.LOSE;
+import static org.autobet.ai.TeamRaterStatsCollector.GameResult.WIN;
+import static org.junit.Assert.assertEquals;
+
+public class TeamRaterStatsTest
+{
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void build()
+    {
+        TeamRaterStats.Builder builder = TeamRaterStats.builder("stats");
+        builder.incrementHome(0, WIN);
+        builder.incrementHome(-100, DRAW);
+        builder.incrementHome(100, LOSE);
+        builder.addHome(100, WIN, 2);
+        builder.addHome(50, WIN, 0);
+        TeamRaterStats stats = builder.build();
+
+        assertEquals(stats.getRates(), ImmutableList.of(-100, 0, 100));
+        assertEquals(stats.getCount(), 5);
+        assertEquals(stats.getHome(-100).getDraws(), 1);
+        assertEquals(stats.getHome(100).getLoses(), 1);
+        assertEquals(stats.getHome(100).getWins(), 2);
+        assertEquals(stats.getHome(50).getCount(), 0);
+        assertEquals(stats.getHome(1000).getCount(), 0);
+    }
+
+    @Test
+    public void merge()
+    {
+        TeamRaterStats left = TeamRaterStats.builder("stats")
+                .incrementHome(-3, WIN)
+                .incrementHome(1, DRAW)
+                .build();
+        TeamRaterStats right = TeamRaterStats.builder("stats")
+                .incrementHome(1, DRAW)
+                .incrementHome(7, LOSE)
+                .build();
+        TeamRaterStats empty = TeamRaterStats.builder("stats").build();
+
+        TeamRaterStats merged = left.merge(empty).merge(right);
+        assertEquals(merged.getRates(), ImmutableList.of(-3, 1, 7));
+        assertEquals(merged.getHome(-3).getWins(), 1);
+        assertEquals(merged.getHome(1).getDraws(), 2);
+        assertEquals(merged.getHome(7).getLoses(), 1);
+        assertEquals(empty.merge(merged).getHomeStats(), merged.getHomeStats());
+    }
+
+    @Test
+    public void json()
+            throws IOException
+    {
+        TeamRaterStats stats = objectMapper.readValue(
+                "{\"storageKey\":\"stats\",\"homeStats\":{\"-1\":{\"stats\":{\"LOSE\":2}},\"2\":{\"stats\":{\"WIN\":3,\"DRAW\":1}}}}",
+                TeamRaterStats.class);
+        assertEquals(stats.getStorageKey(), "stats");
+        assertEquals(stats.getRates(), ImmutableList.of(-1, 2));
+        assertEquals(stats.getHome(-1).getLoses(), 2);
+        assertEquals(stats.getHome(2).getWins(), 3);
+        assertEquals(stats.getHome(2).getDraws(), 1);
+
+        String json = objectMapper.writeValueAsString(stats);
+        assertEquals(json, "{\"storageKey\":\"stats\",\"homeStats\":{\"-1\":{\"stats\":{\"WIN\":0,\"DRAW\":0,\"LOSE\":2}},\"2\":{\"stats\":{\"WIN\":3,\"DRAW\":1,\"LOSE\":0}}}}");
+        assertEquals(objectMapper.readValue(json, TeamRaterStats.class).getHomeStats().keySet(), stats.getHomeStats().keySet());
+    }
+
+    @Test
+    public void codec()
+    {
+        TeamRaterStats stats = TeamRaterStats.builder("stats")
+                .incrementHome(-3, WIN)
+                .addHome(1, DRAW, 1000)
+                .build();
+        BinaryOutput output = new BinaryOutput();
+        TeamRaterStats.CODEC.encode(stats, output);
+        TeamRaterStats decoded = TeamRaterStats.CODEC.decode(new BinaryInput(output.toByteArray()));
+
+        assertEquals(decoded.getStorageKey(), "stats");
+        assertEquals(decoded.getHomeStats(), stats.getHomeStats());
+    }
+}
@@ -66,5 +66,11 @@ public class TeamRatersStatsApproximationTest
         assertEquals(approximation.getDrawChances(2), 0.39, 0.01);
         assertEquals(approximation.getHomeLoseChances(2), 0, 0.01);
         assertEquals(approximation.getHomeWinChances(2), 0.6, 0.01);
+
+        // out of the observed range
+        assertEquals(approximation.getDrawChances(-5), 0.39, 0.01);
+        assertEquals(approximation.getHomeLoseChances(-5), 1, 0.01);
+        assertEquals(approximation.getHomeWinChances(5), 1, 0.01);
+        assertEquals(approximation.getHomeWinChances(-5), 0, 0.01);
     }
 }
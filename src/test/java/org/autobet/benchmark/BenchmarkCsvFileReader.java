@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.benchmark;
+
+import org.autobet.CsvCursor;
+import org.autobet.CsvFileReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("MethodMayBeStatic")
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkCsvFileReader
+{
+    private List<String> csvFiles;
+
+    @Setup
+    public void setup()
+    {
+        csvFiles = BenchmarkGamesSnapshot.listCsvFiles(BenchmarkGamesSnapshot.SEASON_DIRECTORY);
+    }
+
+    @Benchmark
+    public int readSeason(Blackhole blackhole)
+    {
+        int lines = 0;
+        for (String csvFile : csvFiles) {
+            try (CsvFileReader csvFileReader = new CsvFileReader(csvFile)) {
+                for (Map<String, String> line : csvFileReader) {
+                    blackhole.consume(line.get("date"));
+                    lines++;
+                }
+            }
+        }
+        return lines;
+    }
+
+    @Benchmark
+    public int readSeasonWithCursor(Blackhole blackhole)
+    {
+        int lines = 0;
+        for (String csvFile : csvFiles) {
+            try (CsvCursor cursor = new CsvCursor(csvFile)) {
+                int date = cursor.getColumn("date");
+                while (cursor.advance()) {
+                    if (!cursor.isEmpty(date)) {
+                        blackhole.consume(cursor.getEpochDay(date));
+                    }
+                    lines++;
+                }
+            }
+        }
+        return lines;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkCsvFileReader.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
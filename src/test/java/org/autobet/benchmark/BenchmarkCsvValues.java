@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.autobet.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import org.autobet.CsvFileReader;
+import org.autobet.CsvValues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing of dates and odds of a season with {@link CsvValues} to the previous
+ * {@link SimpleDateFormat} and {@link BigDecimal} based parsing.
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkCsvValues
+{
+    private static final int ODDS_SCALE = 4;
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yy");
+    private List<String> dates;
+    private List<String> odds;
+
+    @Setup
+    public void setup()
+    {
+        ImmutableList.Builder<String> dates = ImmutableList.builder();
+        ImmutableList.Builder<String> odds = ImmutableList.builder();
+        for (String csvFile : BenchmarkGamesSnapshot.listCsvFiles(BenchmarkGamesSnapshot.SEASON_DIRECTORY)) {
+            try (CsvFileReader csvFileReader = new CsvFileReader(csvFile)) {
+                for (Map<String, String> line : csvFileReader) {
+                    dates.add(line.get("date"));
+                    for (String column : ImmutableList.of("b365h", "b365d", "b365a")) {
+                        String value = line.get(column);
+                        if (value != null) {
+                            odds.add(value);
+                        }
+                    }
+                }
+            }
+        }
+        this.dates = dates.build();
+        this.odds = odds.build();
+    }
+
+    @Benchmark
+    public void parseDatesWithSimpleDateFormat(Blackhole blackhole)
+            throws ParseException
+    {
+        for (String date : dates) {
+            blackhole.consume(new Date(dateFormat.parse(date + "+0000").getTime()).toLocalDate().toEpochDay());
+        }
+    }
+
+    @Benchmark
+    public void parseDates(Blackhole blackhole)
+    {
+        for (String date : dates) {
+            blackhole.consume(CsvValues.parseEpochDay(date));
+        }
+    }
+
+    @Benchmark
+    public void parseOddsWithBigDecimal(Blackhole blackhole)
+    {
+        for (String value : odds) {
+            blackhole.consume(new BigDecimal(value).setScale(ODDS_SCALE, BigDecimal.ROUND_HALF_UP).unscaledValue().longValue());
+        }
+    }
+
+    @Benchmark
+    public void parseOdds(Blackhole blackhole)
+    {
+        for (String value : odds) {
+            blackhole.consume(CsvValues.parseDecimal(value, ODDS_SCALE));
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkCsvValues.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import org.autobet.CsvFileReader;
+import org.autobet.util.GamesSnapshot;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Builds {@link GamesSnapshot} straight from the bundled csv files, so benchmarks do not need a database.
+ */
+public final class BenchmarkGamesSnapshot
+{
+    public static final String SEASON_DIRECTORY = "data/www.football-data.co.uk/mmz4281/1516";
+
+    // same as in V1__init.sql
+    private static final List<String> BET_VENDOR_PREFIXES = ImmutableList.of(
+            "b365", "bs", "bw", "gb", "iw", "lb", "ps", "so", "sb", "sj", "sy", "vc", "wh");
+    private static final List<String> BET_TYPE_SUFFIXES = ImmutableList.of("h", "a", "d");
+
+    private static final DateTimeFormatter SHORT_DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yy");
+    private static final DateTimeFormatter LONG_DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private BenchmarkGamesSnapshot() {}
+
+    public static List<String> listCsvFiles(String directory)
+    {
+        File[] files = new File(directory).listFiles((dir, name) -> name.endsWith(".csv"));
+        checkArgument(files != null && files.length > 0, "No csv files in: %s", directory);
+        Arrays.sort(files);
+        ImmutableList.Builder<String> csvFiles = ImmutableList.builder();
+        for (File file : files) {
+            csvFiles.add(file.getPath());
+        }
+        return csvFiles.build();
+    }
+
+    static GamesSnapshot load(String directory)
+    {
+        GamesSnapshot.Builder builder = GamesSnapshot.builder();
+        for (int i = 0; i < BET_TYPE_SUFFIXES.size(); i++) {
+            builder.addBetType(i + 1, BET_TYPE_SUFFIXES.get(i).toUpperCase());
+        }
+
+        Map<String, Integer> teamIds = new HashMap<>();
+        int gameId = 0;
+        for (String csvFile : listCsvFiles(directory)) {
+            try (CsvFileReader csvFileReader = new CsvFileReader(csvFile)) {
+                for (Map<String, String> line : csvFileReader) {
+                    if (!line.containsKey("div") || !line.containsKey("date")) {
+                        continue;
+                    }
+                    int homeTeamId = getTeamId(builder, teamIds, line.get("div"), line.get("hometeam"));
+                    int awayTeamId = getTeamId(builder, teamIds, line.get("div"), line.get("awayteam"));
+                    gameId++;
+                    builder.addGame(
+                            gameId,
+                            homeTeamId,
+                            awayTeamId,
+                            parseDate(line.get("date")),
+                            parseGoals(line.get("fthg")),
+                            parseGoals(line.get("ftag")),
+                            line.get("ftr"));
+                    for (int vendor = 0; vendor < BET_VENDOR_PREFIXES.size(); vendor++) {
+                        for (int type = 0; type < BET_TYPE_SUFFIXES.size(); type++) {
+                            String odds = line.get(BET_VENDOR_PREFIXES.get(vendor) + BET_TYPE_SUFFIXES.get(type));
+                            if (odds != null) {
+                                builder.addBet(gameId, vendor + 1, type + 1, Float.parseFloat(odds));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static int getTeamId(GamesSnapshot.Builder builder, Map<String, Integer> teamIds, String division, String name)
+    {
+        return teamIds.computeIfAbsent(division + "/" + name, key -> {
+            int teamId = teamIds.size() + 1;
+            builder.addTeam(teamId, name);
+            return teamId;
+        });
+    }
+
+    private static LocalDate parseDate(String date)
+    {
+        if (date.length() == 8) {
+            return LocalDate.parse(date, SHORT_DATE_FORMAT);
+        }
+        return LocalDate.parse(date, LONG_DATE_FORMAT);
+    }
+
+    private static byte parseGoals(String goals)
+    {
+        if (goals == null) {
+            return GamesSnapshot.NO_GOALS;
+        }
+        return Byte.parseByte(goals);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.benchmark;
+
+import org.autobet.ai.GoalBasedTeamRater;
+import org.autobet.ai.TeamRater;
+import org.autobet.util.GamesSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("MethodMayBeStatic")
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkGoalBasedTeamRater
+{
+    @Param({"1", "6", "12"})
+    private int gamesCount;
+
+    private GamesSnapshot snapshot;
+    private TeamRater warmRater;
+
+    @Setup
+    public void setup()
+    {
+        snapshot = BenchmarkGamesSnapshot.load(BenchmarkGamesSnapshot.SEASON_DIRECTORY);
+        warmRater = new GoalBasedTeamRater(gamesCount);
+        warmRater.rate(snapshot, 0);
+    }
+
+    /**
+     * Includes computing ratings of the whole snapshot.
+     */
+    @Benchmark
+    public long rateAllGames()
+    {
+        return rateAll(new GoalBasedTeamRater(gamesCount));
+    }
+
+    @Benchmark
+    public long rateAllGamesWithComputedRatings()
+    {
+        return rateAll(warmRater);
+    }
+
+    private long rateAll(TeamRater teamRater)
+    {
+        long sum = 0;
+        for (int game = 0; game < snapshot.getGamesCount(); game++) {
+            Optional<Integer> rate = teamRater.rate(snapshot, game);
+            if (rate.isPresent()) {
+                sum += rate.get();
+            }
+        }
+        return sum;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkGoalBasedTeamRater.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.benchmark;
+
+import org.autobet.ai.ChancesApproximationBasedPlayer;
+import org.autobet.ai.GoalBasedTeamRater;
+import org.autobet.ai.LowBetPlayer;
+import org.autobet.ai.Player;
+import org.autobet.ai.RandomPlayer;
+import org.autobet.ai.TeamRater;
+import org.autobet.ai.TeamRaterStatsCollector.GameResult;
+import org.autobet.ai.TeamRaterStatsCollector.TeamRaterStats;
+import org.autobet.ai.TeamRatersStatsApproximation;
+import org.autobet.util.GamesSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkState;
+
+@SuppressWarnings("MethodMayBeStatic")
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkPlayerEvaluation
+{
+    private static final int GAMES_COUNT = 5000;
+
+    @Param({"chances", "low_bet", "random"})
+    private String playerName;
+
+    private GamesSnapshot snapshot;
+    private Player player;
+
+    @Setup
+    public void setup()
+    {
+        snapshot = BenchmarkGamesSnapshot.load(BenchmarkGamesSnapshot.SEASON_DIRECTORY);
+        checkState(snapshot.getGamesCount() >= GAMES_COUNT, "Not enough games to benchmark: %s", snapshot.getGamesCount());
+        player = createPlayer();
+    }
+
+    private Player createPlayer()
+    {
+        switch (playerName) {
+            case "chances":
+                TeamRater teamRater = new GoalBasedTeamRater();
+                return new ChancesApproximationBasedPlayer(new TeamRatersStatsApproximation(collectStats(teamRater)), teamRater);
+            case "low_bet":
+                return new LowBetPlayer();
+            case "random":
+                return new RandomPlayer();
+            default:
+                throw new IllegalArgumentException("Unknown player: " + playerName);
+        }
+    }
+
+    private TeamRaterStats collectStats(TeamRater teamRater)
+    {
+        TeamRaterStats.Builder builder = TeamRaterStats.builder(teamRater.getName());
+        for (int game = 0; game < snapshot.getGamesCount(); game++) {
+            Optional<Integer> rate = teamRater.rate(snapshot, game);
+            if (!rate.isPresent()) {
+                continue;
+            }
+            switch (snapshot.getFullTimeResult(game)) {
+                case 'H':
+                    builder.incrementHome(rate.get(), GameResult.WIN);
+                    break;
+                case 'D':
+                    builder.incrementHome(rate.get(), GameResult.DRAW);
+                    break;
+                case 'A':
+                    builder.incrementHome(rate.get(), GameResult.LOSE);
+                    break;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Mirrors the per game work of PlayerEvaluator, reported per single game.
+     */
+    @Benchmark
+    @OperationsPerInvocation(GAMES_COUNT)
+    public double evaluate()
+    {
+        double result = 0;
+        for (int game = 0; game < GAMES_COUNT; game++) {
+            for (int bet : player.guess(snapshot, game)) {
+                if (snapshot.isWinning(game, bet)) {
+                    result += snapshot.getOdds(bet);
+                }
+                result -= 1;
+            }
+        }
+        return result;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkPlayerEvaluation.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
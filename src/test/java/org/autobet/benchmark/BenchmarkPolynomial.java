@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.benchmark;
+
+import org.autobet.math.Polynomial;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("MethodMayBeStatic")
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkPolynomial
+{
+    private static final int MIN_RATE = -30;
+    private static final int MAX_RATE = 30;
+
+    @Param({"1", "2", "3"})
+    private int degree;
+
+    private Polynomial polynomial;
+
+    @Setup
+    public void setup()
+    {
+        double[] coefficients = new double[degree + 1];
+        for (int i = 0; i < coefficients.length; i++) {
+            coefficients[i] = 1.0 / (i + 2);
+        }
+        polynomial = new Polynomial(coefficients);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MAX_RATE - MIN_RATE + 1)
+    public double calculate()
+    {
+        double sum = 0;
+        for (int rate = MIN_RATE; rate <= MAX_RATE; rate++) {
+            sum += polynomial.calculate(rate);
+        }
+        return sum;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkPolynomial.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
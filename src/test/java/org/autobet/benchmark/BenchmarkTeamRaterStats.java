@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.benchmark;
+
+import org.autobet.ai.GoalBasedTeamRater;
+import org.autobet.ai.TeamRater;
+import org.autobet.ai.TeamRaterStatsCollector.GameResult;
+import org.autobet.ai.TeamRaterStatsCollector.TeamRaterStats;
+import org.autobet.util.GamesSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("MethodMayBeStatic")
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkTeamRaterStats
+{
+    private static final String STORAGE_KEY = "benchmark";
+
+    private int[] rates;
+    private GameResult[] results;
+    private TeamRaterStats left;
+    private TeamRaterStats right;
+
+    @Setup
+    public void setup()
+    {
+        GamesSnapshot snapshot = BenchmarkGamesSnapshot.load(BenchmarkGamesSnapshot.SEASON_DIRECTORY);
+        TeamRater teamRater = new GoalBasedTeamRater();
+        rates = new int[snapshot.getGamesCount()];
+        results = new GameResult[snapshot.getGamesCount()];
+        int ratedGames = 0;
+        for (int game = 0; game < snapshot.getGamesCount(); game++) {
+            Optional<Integer> rate = teamRater.rate(snapshot, game);
+            if (rate.isPresent() && snapshot.getFullTimeResult(game) != GamesSnapshot.NO_RESULT) {
+                rates[ratedGames] = rate.get();
+                results[ratedGames] = toGameResult(snapshot.getFullTimeResult(game));
+                ratedGames++;
+            }
+        }
+        rates = Arrays.copyOf(rates, ratedGames);
+        results = Arrays.copyOf(results, ratedGames);
+
+        left = collect(0, ratedGames / 2);
+        right = collect(ratedGames / 2, ratedGames);
+    }
+
+    private static GameResult toGameResult(byte fullTimeResult)
+    {
+        switch (fullTimeResult) {
+            case 'H':
+                return GameResult.WIN;
+            case 'D':
+                return GameResult.DRAW;
+            case 'A':
+                return GameResult.LOSE;
+            default:
+                throw new IllegalStateException("Unknown full time game result: " + fullTimeResult);
+        }
+    }
+
+    @Benchmark
+    public TeamRaterStats collect()
+    {
+        return collect(0, rates.length);
+    }
+
+    @Benchmark
+    public TeamRaterStats merge()
+    {
+        return left.merge(right);
+    }
+
+    private TeamRaterStats collect(int start, int end)
+    {
+        TeamRaterStats.Builder builder = TeamRaterStats.builder(STORAGE_KEY);
+        for (int i = start; i < end; i++) {
+            builder.incrementHome(rates[i], results[i]);
+        }
+        return builder.build();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkTeamRaterStats.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.ioc;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DatabaseConfigTest
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testPrecedence()
+            throws IOException
+    {
+        File configFile = temporaryFolder.newFile("autobet.properties");
+        Files.write(configFile.toPath(), asList(
+                "db.url=jdbc:mysql://db:3306/autobet",
+                "db.user=autobet",
+                "db.pool-size=8"), UTF_8);
+
+        DatabaseConfig config = DatabaseConfig.load(
+                Optional.of(configFile.getPath()),
+                ImmutableMap.of("AUTOBET_DB_USER", "env", "AUTOBET_DB_POOL_SIZE", "16", "OTHER", "ignored"),
+                ImmutableMap.of(DatabaseConfig.POOL_SIZE, "32"));
+
+        assertEquals(config.getUrl(), "jdbc:mysql://db:3306/autobet");
+        assertEquals(config.getUser(), "env");
+        assertEquals(config.getPassword(), "mysql");
+        assertEquals(config.getPoolSize(), 32);
+    }
+
+    @Test
+    public void testDriverProperties()
+    {
+        Properties properties = DatabaseConfig.load(
+                Optional.empty(),
+                ImmutableMap.of(),
+                ImmutableMap.of(
+                        DatabaseConfig.REWRITE_BATCHED_STATEMENTS, "false",
+                        DatabaseConfig.USE_CURSOR_FETCH, "true",
+                        DatabaseConfig.DEFAULT_FETCH_SIZE, "500"))
+                .getDriverProperties();
+        assertEquals(properties.getProperty("rewriteBatchedStatements"), "false");
+        assertEquals(properties.getProperty("useCursorFetch"), "true");
+        assertEquals(properties.getProperty("defaultFetchSize"), "500");
+
+        DatabaseConfig h2 = DatabaseConfig.load(Optional.empty(), ImmutableMap.of(), ImmutableMap.of(DatabaseConfig.URL, "jdbc:h2:mem:autobet"));
+        assertTrue(h2.getDriverProperties().isEmpty());
+    }
+
+    @Test
+    public void testDefaultDriverProperties()
+    {
+        Properties properties = DatabaseConfig.defaults().getDriverProperties();
+
+        // batched statements are rewritten for client side prepared statements only, cursor fetch implies server side ones
+        assertEquals(properties.getProperty("rewriteBatchedStatements"), "true");
+        assertEquals(properties.getProperty("useServerPrepStmts"), "false");
+        assertEquals(properties.getProperty("useCursorFetch"), "false");
+        assertEquals(properties.getProperty("cachePrepStmts"), "true");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testContradictingDriverProperties()
+    {
+        DatabaseConfig.load(Optional.empty(), ImmutableMap.of(), ImmutableMap.of(DatabaseConfig.USE_SERVER_PREPARED_STATEMENTS, "true"))
+                .getDriverProperties();
+    }
+
+    @Test
+    public void testEnvironmentVariable()
+    {
+        assertEquals(DatabaseConfig.toEnvironmentVariable(DatabaseConfig.USE_CURSOR_FETCH), "AUTOBET_DB_USE_CURSOR_FETCH");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownProperty()
+    {
+        DatabaseConfig.load(Optional.empty(), ImmutableMap.of(), ImmutableMap.of("db.pool", "1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidValue()
+    {
+        DatabaseConfig.load(Optional.empty(), ImmutableMap.of(), ImmutableMap.of(DatabaseConfig.USE_CURSOR_FETCH, "yes"))
+                .getDriverProperties();
+    }
+}
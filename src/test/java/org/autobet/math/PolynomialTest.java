@@ -38,6 +38,12 @@ public class PolynomialTest
         assertEquals(parabola.calculate(0), 1, DELTA);
         assertEquals(parabola.calculate(-2), 9, DELTA);
         assertEquals(parabola.calculate(2), 17,  DELTA);
+
+        Polynomial cubic = new Polynomial(new double[] {1, 2, 3, 4});
+        assertEquals(cubic.calculate(0), 1, DELTA);
+        assertEquals(cubic.calculate(-2), -23, DELTA);
+        assertEquals(cubic.calculate(2), 49, DELTA);
+        assertEquals(cubic.calculate(0.5), 3.25, DELTA);
     }
 
 }
@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.autobet.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryInputTest
+{
+    @Test
+    public void test()
+    {
+        long[] values = {0, 1, -1, 127, 128, -64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        BinaryOutput output = new BinaryOutput(1);
+        for (long value : values) {
+            output.writeSignedVarint(value);
+        }
+        output.writeVarint(300);
+        output.writeDouble(-0.25);
+        output.writeString("za\u017c\u00f3\u0142\u0107");
+        output.writeByte(7);
+
+        BinaryInput input = new BinaryInput(output.toByteArray());
+        for (long value : values) {
+            assertEquals(input.readSignedVarint(), value);
+        }
+        assertEquals(input.readIntVarint(), 300);
+        assertEquals(input.readDouble(), -0.25, 0.0);
+        assertEquals(input.readString(), "za\u017c\u00f3\u0142\u0107");
+        assertEquals(input.readByte(), 7);
+        assertTrue(input.isFinished());
+    }
+
+    @Test
+    public void testVarintSize()
+    {
+        assertEquals(new BinaryOutput().writeVarint(127).size(), 1);
+        assertEquals(new BinaryOutput().writeVarint(128).size(), 2);
+        assertEquals(new BinaryOutput().writeSignedVarint(-64).size(), 1);
+        assertEquals(new BinaryOutput().writeVarint(-1).size(), 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncated()
+    {
+        new BinaryInput(new byte[] {(byte) 0x80}).readVarint();
+    }
+}
@@ -18,13 +18,19 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.MoreObjects;
 import org.autobet.TemporaryDatabase;
+import org.autobet.ai.PlayerEvaluator.Statistics;
+import org.autobet.ai.TeamRaterStatsCollector.GameResult;
+import org.autobet.ai.TeamRaterStatsCollector.TeamRaterStats;
+import org.autobet.model.KeyValueStoreEntry;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.util.List;
 import java.util.Objects;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class KeyValueStoreTest
 {
@@ -42,6 +48,84 @@ public class KeyValueStoreTest
         assertEquals(KeyValueStore.loadLatest("key", SomeBean.class).get(), new SomeBean(2));
     }
 
+    @Test
+    public void testVersions()
+    {
+        KeyValueStore.store("versioned", new SomeBean(0));
+        KeyValueStore.store("versioned", new SomeBean(1));
+
+        List<KeyValueStore.Version<SomeBean>> versions = KeyValueStore.loadVersions("versioned", SomeBean.class);
+        assertEquals(versions.size(), 2);
+        assertEquals(versions.get(0).getValue(), new SomeBean(1));
+        assertEquals(versions.get(1).getValue(), new SomeBean(0));
+        assertTrue(versions.get(0).getId() > versions.get(1).getId());
+    }
+
+    @Test
+    public void testLoadLatestBefore()
+    {
+        KeyValueStore.store("before", new Statistics("first", 1.5, 10, 5, 2));
+        KeyValueStore.store("before_marker", 1);
+        KeyValueStore.store("before", new Statistics("second", 2.5, 10, 5, 2));
+        long markerId = KeyValueStore.loadVersions("before_marker", Integer.class).get(0).getId();
+
+        assertEquals(KeyValueStore.loadLatestBefore("before", markerId, Statistics.CODEC).get().getValue().getResult(), 1.5, 0.0);
+        assertEquals(KeyValueStore.loadLatestBefore("before", Long.MAX_VALUE, Statistics.CODEC).get().getValue().getResult(), 2.5, 0.0);
+        assertFalse(KeyValueStore.loadLatestBefore("before", 0, Statistics.CODEC).isPresent());
+    }
+
+    @Test
+    public void testCompact()
+    {
+        for (int i = 0; i < 5; i++) {
+            KeyValueStore.store("compacted", new SomeBean(i));
+            KeyValueStore.store("other", new SomeBean(i));
+        }
+        KeyValueStore.store("single", new SomeBean(0));
+
+        // other tests share the database, so the number of removed entries is not checked
+        KeyValueStore.compact(2);
+        assertEquals(KeyValueStore.compact(2), 0);
+        assertEquals(KeyValueStoreEntry.count("_key = ?", "compacted"), Long.valueOf(2));
+        assertEquals(KeyValueStoreEntry.count("_key = ?", "single"), Long.valueOf(1));
+        assertEquals(KeyValueStore.loadLatest("compacted", SomeBean.class).get(), new SomeBean(4));
+
+        KeyValueStore.compact(1);
+        assertEquals(KeyValueStoreEntry.count("_key = ?", "other"), Long.valueOf(1));
+        assertEquals(KeyValueStore.loadLatest("other", SomeBean.class).get(), new SomeBean(4));
+    }
+
+    @Test
+    public void testStorable()
+    {
+        Statistics small = new Statistics("small", 1.5, 10, 5, 2);
+        KeyValueStore.store("storable", small);
+        assertEquals(KeyValueStore.loadLatest("storable", Statistics.CODEC).get().getResult(), 1.5, 0.0);
+
+        TeamRaterStats.Builder builder = TeamRaterStats.builder("large");
+        for (int rate = 0; rate < 1000; rate++) {
+            builder.incrementHome(rate, GameResult.WIN);
+        }
+        TeamRaterStats large = builder.build();
+        KeyValueStore.store("storable", large);
+        assertEquals(KeyValueStore.loadLatest("storable", TeamRaterStats.CODEC).get().getHomeStats(), large.getHomeStats());
+    }
+
+    @Test
+    public void testStorableStoredAsJson()
+    {
+        System.setProperty(KeyValueStore.JSON_PROPERTY, "true");
+        try {
+            KeyValueStore.store("json", new Statistics("json", 2.5, 10, 5, 2));
+        }
+        finally {
+            System.clearProperty(KeyValueStore.JSON_PROPERTY);
+        }
+        Statistics statistics = KeyValueStore.loadLatest("json", Statistics.CODEC).get();
+        assertEquals(statistics.getResult(), 2.5, 0.0);
+        assertEquals(statistics.getWinningBetsCount(), 2);
+    }
+
     public static class SomeBean
     {
         private final int value;